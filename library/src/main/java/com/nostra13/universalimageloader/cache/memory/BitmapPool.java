@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+import android.graphics.Bitmap;
+
+/**
+ * 可复用Bitmap对象池统一规范接口
+ * Pool of Bitmaps which aren't used anymore and can be reused for decoding of other images (see
+ * {@link android.graphics.BitmapFactory.Options#inBitmap}). Reusing of bitmaps decreases memory allocations and GC
+ * pauses.<br />
+ * Implementations have to be thread-safe.
+ *
+ * @see com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#bitmapPool(BitmapPool)
+ */
+public interface BitmapPool {
+	/**
+	 * Puts bitmap which isn't used (and won't be used) by anybody into pool.
+	 *
+	 * @return <b>true</b> - if bitmap was put into pool; <b>false</b> - if bitmap can't be reused (caller can recycle
+	 * it)
+	 */
+	boolean put(Bitmap bitmap);
+
+	/**
+	 * Takes bitmap of exactly passed size and config from pool. Content of returned bitmap is erased.
+	 *
+	 * @return Bitmap or <b>null</b> if there is no such bitmap in pool
+	 */
+	Bitmap get(int width, int height, Bitmap.Config config);
+
+	/** Removes (and recycles) all bitmaps from pool */
+	void clear();
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory;
+
+/**
+ * 内存缓存淘汰监听器
+ * Listener of Bitmaps which are evicted from memory cache by its eviction policy (i.e. because of cache size limit).
+ * Bitmaps removed by {@link MemoryCache#remove(String)} or {@link MemoryCache#clear()} aren't reported.<br />
+ * Listener is called outside of cache locks, so it can call the cache.
+ *
+ * @see com.nostra13.universalimageloader.cache.memory.impl.UriIndexedMemoryCache
+ */
+public interface EvictionListener {
+
+	/** Is called when Bitmap is evicted from memory cache */
+	void onEvicted(String key);
+}
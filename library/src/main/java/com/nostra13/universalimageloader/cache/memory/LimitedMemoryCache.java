@@ -19,9 +19,8 @@ import android.graphics.Bitmap;
 
 import com.nostra13.universalimageloader.utils.L;
 
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -48,13 +47,13 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	private final AtomicInteger cacheSize;
 
 	/**
-	 * [注]LinkedList  硬缓存
-	 * 所有存储对象引用集合。每一个对象都添加在集合的末尾。如果缓存的大小将要操作限制，那么集合的第一个对象将会删除并且被GC进行回收
-	 * Contains strong references to stored objects. Each next object is added last. If hard cache size will exceed
-	 * limit then first object is deleted (but it continue exist at {@link #softMap} and can be collected by GC at any
-	 * time)
+	 * 硬缓存  图片对象 -> 被强引用的次数
+	 * 所有存储对象的强引用集合。如果缓存的大小将要超过限制，那么由{@link #removeNext()}决定的对象将会删除并且可能被GC进行回收
+	 * Contains strong references to stored objects (and number of references to every object). If hard cache size will
+	 * exceed limit then object defined by {@link #removeNext()} is deleted (but it continue exist at {@link #softMap}
+	 * and can be collected by GC at any time). Objects are hashed so adding and removing don't depend on cache size.
 	 */
-	private final List<Bitmap> hardCache = Collections.synchronizedList(new LinkedList<Bitmap>());
+	private final Map<Bitmap, Integer> hardCache = new HashMap<Bitmap, Integer>();
 
 	/**
 	 * @param sizeLimit Maximum size for cache (in bytes)
@@ -69,14 +68,21 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	}
 
 	/**
-	 * 图片进行存入缓存中
-	 * @param key
-	 * @param value
-	 * @return
+	 * 图片进行存入缓存中，同一key之前缓存的图片会被替换（从硬缓存中释放）
+	 * Puts value into cache. Value which was cached for the same key before is replaced: it's released from hard cache
+	 * and its size isn't counted in cache size anymore (even if new value is too big for hard cache).
+	 *
+	 * @return <b>true</b> - if value was put into hard cache; <b>false</b> - if value is too big for hard cache (then
+	 * it's stored by not strong reference only)
 	 */
 	@Override
 	public boolean put(String key, Bitmap value) {
 		boolean putSuccessfully = false;
+		// Value which is replaced for the key isn't held by hard cache anymore
+		Bitmap previousValue = super.get(key);
+		if (previousValue != null && removeFromHardCache(previousValue)) {
+			cacheSize.addAndGet(-getSize(previousValue));
+		}
 		// Try to add value to hard cache
 		// 获取图片大小
 		int valueSize = getSize(value);
@@ -85,11 +91,12 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 		if (valueSize < sizeLimit) {
 			while (curCacheSize + valueSize > sizeLimit) {
 				Bitmap removedValue = removeNext();
-				if (hardCache.remove(removedValue)) {
+				if (removedValue == null) break;
+				if (removeFromHardCache(removedValue)) {
 					curCacheSize = cacheSize.addAndGet(-getSize(removedValue));
 				}
 			}
-			hardCache.add(value);
+			addToHardCache(value);
 			cacheSize.addAndGet(valueSize);
 
 			putSuccessfully = true;
@@ -108,7 +115,7 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 	public Bitmap remove(String key) {
 		Bitmap value = super.get(key);
 		if (value != null) {
-			if (hardCache.remove(value)) {
+			if (removeFromHardCache(value)) {
 				cacheSize.addAndGet(-getSize(value));
 			}
 		}
@@ -117,11 +124,34 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 
 	@Override
 	public void clear() {
-		hardCache.clear();
+		synchronized (hardCache) {
+			hardCache.clear();
+		}
 		cacheSize.set(0);
 		super.clear();
 	}
 
+	private void addToHardCache(Bitmap value) {
+		synchronized (hardCache) {
+			Integer count = hardCache.get(value);
+			hardCache.put(value, count == null ? 1 : count + 1);
+		}
+	}
+
+	/** @return <b>true</b> - if hard cache contained value; <b>false</b> - otherwise */
+	private boolean removeFromHardCache(Bitmap value) {
+		synchronized (hardCache) {
+			Integer count = hardCache.get(value);
+			if (count == null) return false;
+			if (count > 1) {
+				hardCache.put(value, count - 1);
+			} else {
+				hardCache.remove(value);
+			}
+			return true;
+		}
+	}
+
 	/**
 	 * 获取缓存大小限制
 	 * @return
@@ -132,5 +162,10 @@ public abstract class LimitedMemoryCache extends BaseMemoryCache {
 
 	protected abstract int getSize(Bitmap value);
 
+	/**
+	 * Removes next object from eviction structure of subclass. It's called when hard cache exceeds its size limit.
+	 *
+	 * @return Removed object or <b>null</b> if there is nothing to remove
+	 */
 	protected abstract Bitmap removeNext();
 }
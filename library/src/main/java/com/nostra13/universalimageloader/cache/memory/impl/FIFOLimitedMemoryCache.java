@@ -20,9 +20,9 @@ import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * 实现LimitedMemoryCache抽象类，该为有限缓存，所有存储的图片确保不会超过限制大小。当缓存大小已经达到极限的时候，
@@ -39,9 +39,10 @@ import java.util.List;
  */
 public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	/**
-	 * 开辟硬缓存集合  采用LinkedList
+	 * 按存入顺序排列的队列  采用LinkedHashMap（双向链表+哈希表，删除任意元素为O(1)）
+	 * Queue of stored objects in order of putting. Object can be removed from any place of queue in constant time.
 	 */
-	private final List<Bitmap> queue = Collections.synchronizedList(new LinkedList<Bitmap>());
+	private final Map<String, Bitmap> queue = new LinkedHashMap<String, Bitmap>();
 
 	/**
 	 * FIFO限制缓存器构造器
@@ -60,7 +61,10 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	@Override
 	public boolean put(String key, Bitmap value) {
 		if (super.put(key, value)) {
-			queue.add(value);
+			synchronized (queue) {
+				queue.remove(key); // Re-put object is the last in queue
+				queue.put(key, value);
+			}
 			return true;
 		} else {
 			return false;
@@ -74,9 +78,8 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	 */
 	@Override
 	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
-		if (value != null) {
-			queue.remove(value);
+		synchronized (queue) {
+			queue.remove(key);
 		}
 		return super.remove(key);
 	}
@@ -86,7 +89,9 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	 */
 	@Override
 	public void clear() {
-		queue.clear();
+		synchronized (queue) {
+			queue.clear();
+		}
 		super.clear();
 	}
 
@@ -106,7 +111,13 @@ public class FIFOLimitedMemoryCache extends LimitedMemoryCache {
 	 */
 	@Override
 	protected Bitmap removeNext() {
-		return queue.remove(0);
+		synchronized (queue) {
+			Iterator<Bitmap> it = queue.values().iterator();
+			if (!it.hasNext()) return null;
+			Bitmap firstValue = it.next();
+			it.remove();
+			return firstValue;
+		}
 	}
 
 	@Override
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+/**
+ * 基于Count-Min Sketch的访问频率估计器
+ * Count-min sketch which estimates access frequencies of keys (popularity of keys in recent history). Every key is
+ * counted by 4 counters of 4 bits (so frequency is capped at 15), estimated frequency is minimum of them. Counters are
+ * packed into <b>long</b>s, 16 counters per one <b>long</b>.<br />
+ * When number of counted accesses reaches sample size (10 times of sketch capacity) all counters are halved, so old
+ * popularity fades out.<br />
+ * <br />
+ * <b>NOTE:</b> Sketch isn't thread-safe, it should be guarded by owner.
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK = 0x1111111111111111L;
+	private static final int MIN_CAPACITY = 16;
+	private static final int SAMPLE_FACTOR = 10;
+
+	private long[] table;
+	private int tableMask;
+	/*计数次数达到该值后所有计数器减半*/
+	private int sampleSize;
+	/*自上次减半后的计数次数*/
+	private int size;
+
+	/** @param capacity Expected number of counted keys */
+	FrequencySketch(int capacity) {
+		allocate(capacity);
+	}
+
+	/**
+	 * Grows sketch if expected number of counted keys exceeds its capacity. Counted frequencies are lost on growing.
+	 *
+	 * @param capacity Expected number of counted keys
+	 */
+	void ensureCapacity(int capacity) {
+		if (capacity > table.length) {
+			allocate(capacity);
+		}
+	}
+
+	/** @return Estimated frequency of key (0..15) */
+	int frequency(String key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/** Increments estimated frequency of key (if it isn't at maximum yet) */
+	void increment(String key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++size == sampleSize) {
+			reset();
+		}
+	}
+
+	/** Forgets all frequencies */
+	void clear() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = 0;
+		}
+		size = 0;
+	}
+
+	private void allocate(int capacity) {
+		int length = MIN_CAPACITY;
+		while (length < capacity && length < (1 << 30)) {
+			length <<= 1;
+		}
+		table = new long[length];
+		tableMask = length - 1;
+		sampleSize = length * SAMPLE_FACTOR;
+		size = 0;
+	}
+
+	/** Increments counter #{@code counter} of {@code table[index]} if it isn't at maximum */
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/** Halves all counters */
+	private void reset() {
+		int oddCounters = 0;
+		for (int i = 0; i < table.length; i++) {
+			oddCounters += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size - (oddCounters >>> 2)) >>> 1;
+	}
+
+	private int indexOf(int hash, int depth) {
+		long h = (hash + SEEDS[depth]) * SEEDS[depth];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+}
@@ -78,4 +78,9 @@ public class FuzzyKeyMemoryCache implements MemoryCache {
 	public Collection<String> keys() {
 		return cache.keys();
 	}
+
+	/** @return Memory cache which is decorated by this cache */
+	public MemoryCache getWrappedCache() {
+		return cache;
+	}
 }
@@ -20,11 +20,10 @@ import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 /**
  * 有限制的缓存
@@ -40,13 +39,15 @@ import java.util.Set;
  */
 public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	/**
-	 * 保存存储对象强引用集合，如果硬缓存大小超过限制，那么最大的缓存会被删除。
+	 * 保存存储对象强引用的大顶堆（按图片大小），如果硬缓存大小超过限制，那么最大的缓存会被删除。
 	 * (但是该对象还是会存在软引用中，随时可能被GC回收)
-	 * Contains strong references to stored objects (keys) and sizes of the objects. If hard cache
-	 * size will exceed limit then object with the largest size is deleted (but it continue exist at
-	 * {@link #softMap} and can be collected by GC at any time)
+	 * Contains strong references to stored objects in max-heap ordered by sizes of the objects. If hard cache size will
+	 * exceed limit then object with the largest size is deleted (but it continue exist at {@link #softMap} and can be
+	 * collected by GC at any time)
 	 */
-	private final Map<Bitmap, Integer> valueSizes = Collections.synchronizedMap(new HashMap<Bitmap, Integer>());
+	private final List<HeapEntry> heap = new ArrayList<HeapEntry>();
+	/*key -> 堆中的元素，用于O(log n)删除任意元素*/
+	private final Map<String, HeapEntry> entries = new HashMap<String, HeapEntry>();
 
 	/**
 	 * 构造器
@@ -65,7 +66,13 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	@Override
 	public boolean put(String key, Bitmap value) {
 		if (super.put(key, value)) {
-			valueSizes.put(value, getSize(value));
+			HeapEntry entry = new HeapEntry(key, value, getSize(value));
+			synchronized (heap) {
+				removeFromHeap(entries.put(key, entry));
+				entry.index = heap.size();
+				heap.add(entry);
+				siftUp(entry.index);
+			}
 			return true;
 		} else {
 			return false;
@@ -79,9 +86,8 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	 */
 	@Override
 	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
-		if (value != null) {
-			valueSizes.remove(value);
+		synchronized (heap) {
+			removeFromHeap(entries.remove(key));
 		}
 		return super.remove(key);
 	}
@@ -91,7 +97,10 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 	 */
 	@Override
 	public void clear() {
-		valueSizes.clear();
+		synchronized (heap) {
+			heap.clear();
+			entries.clear();
+		}
 		super.clear();
 	}
 
@@ -102,29 +111,78 @@ public class LargestLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		Integer maxSize = null;
-		Bitmap largestValue = null;
-		Set<Entry<Bitmap, Integer>> entries = valueSizes.entrySet();
-		synchronized (valueSizes) {
-			for (Entry<Bitmap, Integer> entry : entries) {
-				if (largestValue == null) {
-					largestValue = entry.getKey();
-					maxSize = entry.getValue();
-				} else {
-					Integer size = entry.getValue();
-					if (size > maxSize) {
-						maxSize = size;
-						largestValue = entry.getKey();
-					}
-				}
-			}
+		synchronized (heap) {
+			if (heap.isEmpty()) return null;
+			HeapEntry largestEntry = heap.get(0);
+			entries.remove(largestEntry.key);
+			removeFromHeap(largestEntry);
+			return largestEntry.value;
 		}
-		valueSizes.remove(largestValue);
-		return largestValue;
 	}
 
 	@Override
 	protected Reference<Bitmap> createReference(Bitmap value) {
 		return new WeakReference<Bitmap>(value);
 	}
+
+	/** Removes entry from any place of heap: it's replaced by the last entry which is moved to its place in heap */
+	private void removeFromHeap(HeapEntry entry) {
+		if (entry == null) return;
+		int lastIndex = heap.size() - 1;
+		HeapEntry last = heap.remove(lastIndex);
+		if (entry.index != lastIndex) {
+			last.index = entry.index;
+			heap.set(entry.index, last);
+			siftDown(last.index);
+			siftUp(last.index);
+		}
+	}
+
+	private void siftUp(int index) {
+		HeapEntry entry = heap.get(index);
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			HeapEntry parent = heap.get(parentIndex);
+			if (parent.size >= entry.size) break;
+			parent.index = index;
+			heap.set(index, parent);
+			index = parentIndex;
+		}
+		entry.index = index;
+		heap.set(index, entry);
+	}
+
+	private void siftDown(int index) {
+		HeapEntry entry = heap.get(index);
+		int size = heap.size();
+		while (true) {
+			int childIndex = (index << 1) + 1;
+			if (childIndex >= size) break;
+			HeapEntry child = heap.get(childIndex);
+			if (childIndex + 1 < size && heap.get(childIndex + 1).size > child.size) {
+				childIndex++;
+				child = heap.get(childIndex);
+			}
+			if (entry.size >= child.size) break;
+			child.index = index;
+			heap.set(index, child);
+			index = childIndex;
+		}
+		entry.index = index;
+		heap.set(index, entry);
+	}
+
+	/** Element of heap, knows its index in heap */
+	private static final class HeapEntry {
+		final String key;
+		final Bitmap value;
+		final int size;
+		int index;
+
+		HeapEntry(String key, Bitmap value, int size) {
+			this.key = key;
+			this.value = value;
+			this.size = size;
+		}
+	}
 }
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按尺寸和格式分组的LRU算法Bitmap对象池
+ * Pool of Bitmaps limited by sum of bitmap sizes. Bitmaps are grouped by size and config; when pool is full then the
+ * oldest bitmap of the least recently used group is recycled.<br />
+ * Only mutable bitmaps are accepted (only they can be reused for decoding), bitmaps aren't accepted on Android versions
+ * before 3.0 (there is no bitmap reusing there).
+ */
+public class LruBitmapPool implements BitmapPool {
+
+	private final int maxSize;
+	private int size;
+
+	/*按尺寸和格式分组的bitmap*/
+	private final LinkedHashMap<Key, LinkedList<Bitmap>> groups = new LinkedHashMap<Key, LinkedList<Bitmap>>(0, 0.75f,
+			true);
+	/*池中所有的bitmap，防止同一个bitmap被重复放入*/
+	private final Set<Bitmap> pooledBitmaps = new HashSet<Bitmap>();
+	private final Key lookupKey = new Key();
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this pool */
+	public LruBitmapPool(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public synchronized boolean put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null
+				|| Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+			return false;
+		}
+		int bitmapSize = sizeOf(bitmap);
+		if (bitmapSize > maxSize || !pooledBitmaps.add(bitmap)) return false;
+
+		Key key = new Key();
+		key.set(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+		LinkedList<Bitmap> group = groups.get(key);
+		if (group == null) {
+			group = new LinkedList<Bitmap>();
+			groups.put(key, group);
+		}
+		group.addLast(bitmap);
+		size += bitmapSize;
+		trimToSize(maxSize);
+		return true;
+	}
+
+	@Override
+	public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+		lookupKey.set(width, height, config);
+		LinkedList<Bitmap> group = groups.get(lookupKey);
+		if (group == null) return null;
+
+		Bitmap bitmap = group.removeLast();
+		if (group.isEmpty()) {
+			groups.remove(lookupKey);
+		}
+		pooledBitmaps.remove(bitmap);
+		size -= sizeOf(bitmap);
+		bitmap.eraseColor(Color.TRANSPARENT);
+		return bitmap;
+	}
+
+	@Override
+	public synchronized void clear() {
+		trimToSize(-1);
+	}
+
+	/** Recycles the oldest bitmaps of the least recently used groups until pool fits passed size */
+	private void trimToSize(int maxSize) {
+		while (size > maxSize && !groups.isEmpty()) {
+			Map.Entry<Key, LinkedList<Bitmap>> eldestGroup = groups.entrySet().iterator().next();
+			LinkedList<Bitmap> group = eldestGroup.getValue();
+			Bitmap bitmap = group.removeFirst();
+			if (group.isEmpty()) {
+				groups.remove(eldestGroup.getKey());
+			}
+			pooledBitmaps.remove(bitmap);
+			size -= sizeOf(bitmap);
+			bitmap.recycle();
+		}
+	}
+
+	private static int sizeOf(Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	@Override
+	public synchronized final String toString() {
+		return String.format("LruBitmapPool[maxSize=%d,size=%d]", maxSize, size);
+	}
+
+	/** Size and config of bitmap */
+	private static final class Key {
+		int width;
+		int height;
+		Bitmap.Config config;
+
+		void set(int width, int height, Bitmap.Config config) {
+			this.width = width;
+			this.height = height;
+			this.config = config;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return width == key.width && height == key.height && config == key.config;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = width;
+			result = 31 * result + height;
+			result = 31 * result + (config != null ? config.hashCode() : 0);
+			return result;
+		}
+	}
+}
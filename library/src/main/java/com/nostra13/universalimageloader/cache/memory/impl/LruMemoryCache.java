@@ -2,6 +2,8 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import android.graphics.Bitmap;
 
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.EvictionListener;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 
 import java.util.Collection;
@@ -30,6 +32,9 @@ public class LruMemoryCache implements MemoryCache {
 	 * 缓存字节数量大小
 	 */
 	private int size;
+	/*被淘汰的bitmap放入该对象池中复用*/
+	private volatile BitmapPool bitmapPool;
+	private volatile EvictionListener evictionListener;
 
 	/**
 	 * LRU内存缓存器构造器
@@ -79,17 +84,39 @@ public class LruMemoryCache implements MemoryCache {
 			}
 		}
 
-		trimToSize(maxSize);
+		trimToSize(maxSize, true);
 		return true;
 	}
 
+	/**
+	 * 设置bitmap对象池，被淘汰的bitmap会放入对象池中
+	 * Sets pool for evicted Bitmaps. Bitmaps evicted because of cache size limit are offered to the pool (it decides
+	 * whether bitmap can be reused). Bitmaps removed by {@link #remove(String)} or {@link #clear()} aren't offered.
+	 *
+	 * @param bitmapPool Pool for evicted bitmaps; <b>null</b> - evicted bitmaps are left for GC
+	 */
+	public void setBitmapPool(BitmapPool bitmapPool) {
+		this.bitmapPool = bitmapPool;
+	}
+
+	/**
+	 * Sets listener of Bitmaps evicted because of cache size limit
+	 *
+	 * @param evictionListener Listener; <b>null</b> - evictions aren't reported
+	 */
+	public void setEvictionListener(EvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
 	/**
 	 * 进行移除最早的文件，来保证缓存大小在期望之内
 	 * Remove the eldest entries until the total of remaining entries is at or below the requested size.
 	 *
 	 * @param maxSize the maximum size of the cache before returning. May be -1 to evict even 0-sized elements.
+	 * @param evict   whether entries are evicted because of size limit (evicted entries are offered to bitmap pool and
+	 *                reported to eviction listener)
 	 */
-	private void trimToSize(int maxSize) {
+	private void trimToSize(int maxSize, boolean evict) {
 		while (true) {
 			String key;
 			Bitmap value;
@@ -111,6 +138,16 @@ public class LruMemoryCache implements MemoryCache {
 				map.remove(key);
 				size -= sizeOf(key, value);
 			}
+			if (evict) {
+				BitmapPool pool = bitmapPool;
+				if (pool != null) {
+					pool.put(value);
+				}
+				EvictionListener listener = evictionListener;
+				if (listener != null) {
+					listener.onEvicted(key);
+				}
+			}
 		}
 	}
 
@@ -142,7 +179,7 @@ public class LruMemoryCache implements MemoryCache {
 
 	@Override
 	public void clear() {
-		trimToSize(-1); // -1 will evict 0-sized elements
+		trimToSize(-1, false); // -1 will evict 0-sized elements
 	}
 
 	/**
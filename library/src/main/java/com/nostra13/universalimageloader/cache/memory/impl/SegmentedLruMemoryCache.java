@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.EvictionListener;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分段(锁分离)的LRU算法内存缓存器
+ * Segmented variant of {@link LruMemoryCache}. Keys are hashed to several independent LRU segments, every segment has
+ * its own lock and byte budget (equal part of max size), so threads which access different keys don't contend for one
+ * lock.<br />
+ * Size of cache is accounted globally: segment can exceed its budget while whole cache fits max size (so bitmap which
+ * is bigger than segment budget can be cached). When cache exceeds max size then the eldest Bitmaps are evicted from
+ * segments which exceed their budgets. Segments are visited round-robin (starting from the next segment on every
+ * eviction, so no segment is preferred) and only one segment is locked at a time. Segment of added Bitmap is trimmed
+ * last, added Bitmap itself is evicted only if it doesn't fit max size at all.<br />
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps. LRU order is kept inside segment, so eviction
+ * order is approximate LRU for whole cache.
+ */
+public class SegmentedLruMemoryCache implements MemoryCache {
+
+	/*默认分段数量*/
+	public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	private final Segment[] segments;
+	private final int segmentMask;
+	/*内存缓存最大值*/
+	private final int maxSize;
+	/*所有分段的缓存字节数量大小*/
+	private final AtomicInteger totalSize = new AtomicInteger();
+	/*下一次淘汰开始检查的分段*/
+	private final AtomicInteger evictionCursor = new AtomicInteger();
+	private volatile EvictionListener evictionListener;
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public SegmentedLruMemoryCache(int maxSize) {
+		this(maxSize, DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * @param maxSize      Maximum sum of the sizes of the Bitmaps in this cache
+	 * @param segmentCount Number of segments, it's rounded up to power of two
+	 */
+	public SegmentedLruMemoryCache(int maxSize, int segmentCount) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (segmentCount <= 0) {
+			throw new IllegalArgumentException("segmentCount <= 0");
+		}
+		int count = 1;
+		while (count < segmentCount) {
+			count <<= 1;
+		}
+		this.maxSize = maxSize;
+		segmentMask = count - 1;
+		segments = new Segment[count];
+		int segmentMaxSize = Math.max(1, maxSize / count);
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(segmentMaxSize);
+		}
+	}
+
+	@Override
+	public final Bitmap get(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.map.get(key);
+		}
+	}
+
+	@Override
+	public final boolean put(String key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			int delta = sizeOf(value);
+			Bitmap previous = segment.map.put(key, value);
+			if (previous != null) {
+				delta -= sizeOf(previous);
+			}
+			segment.size += delta;
+			totalSize.addAndGet(delta);
+		}
+
+		trimToSize(segment, key);
+		return true;
+	}
+
+	/**
+	 * 缓存超出最大值时，从超出自身额度的分段中移除最早的图片（分段轮询）
+	 * Evicts the eldest entries from segments which exceed their budgets until cache fits max size. Segments are
+	 * visited round-robin from eviction cursor, segments which fit their budgets are skipped without locking. Segment
+	 * of added entry is trimmed last. If added entry is bigger than segment budget then other segments are trimmed
+	 * below their budgets to give space for it.
+	 */
+	private void trimToSize(Segment addedTo, String addedKey) {
+		if (totalSize.get() <= maxSize) return;
+		int start = evictionCursor.getAndIncrement();
+		for (int i = 0; i < segments.length; i++) {
+			Segment segment = segments[(start + i) & segmentMask];
+			if (segment != addedTo && segment.size > segment.budget) {
+				segment.trimToSize(segment.budget, null);
+				if (totalSize.get() <= maxSize) return;
+			}
+		}
+		addedTo.trimToSize(addedTo.budget, addedKey);
+		if (totalSize.get() <= maxSize) return;
+
+		// Added entry is bigger than budget of its segment
+		for (int i = 0; i < segments.length; i++) {
+			Segment segment = segments[(start + i) & segmentMask];
+			if (segment != addedTo && segment.size > 0) {
+				segment.trimToSize(0, null);
+				if (totalSize.get() <= maxSize) return;
+			}
+		}
+		addedTo.trimToSize(addedTo.budget, null);
+	}
+
+	@Override
+	public final Bitmap remove(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			Bitmap previous = segment.map.remove(key);
+			if (previous != null) {
+				int previousSize = sizeOf(previous);
+				segment.size -= previousSize;
+				totalSize.addAndGet(-previousSize);
+			}
+			return previous;
+		}
+	}
+
+	@Override
+	public Collection<String> keys() {
+		HashSet<String> keys = new HashSet<String>();
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				keys.addAll(segment.map.keySet());
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.trimToSize(-1, null); // -1 will evict 0-sized elements
+		}
+	}
+
+	/** @return Sum of the sizes of the Bitmaps in this cache */
+	public int size() {
+		return totalSize.get();
+	}
+
+	/**
+	 * Sets listener of Bitmaps evicted because of cache size limit
+	 *
+	 * @param evictionListener Listener; <b>null</b> - evictions aren't reported
+	 */
+	public void setEvictionListener(EvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	private Segment segmentFor(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & segmentMask];
+	}
+
+	/**
+	 * 进行计算图片大小
+	 * Returns the size {@code Bitmap} in bytes.
+	 * <p/>
+	 * An entry's size must not change while it is in the cache.
+	 */
+	private static int sizeOf(Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+
+	@Override
+	public final String toString() {
+		return String.format("SegmentedLruCache[maxSize=%d,segments=%d]", maxSize, segments.length);
+	}
+
+	/** LRU segment of cache. Segment is guarded by its own monitor. */
+	private final class Segment {
+		final LinkedHashMap<String, Bitmap> map = new LinkedHashMap<String, Bitmap>(0, 0.75f, true);
+		/*分段字节额度*/
+		final int budget;
+		// Is changed under segment lock, can be read without lock to check whether segment exceeds its budget
+		volatile int size;
+
+		Segment(int budget) {
+			this.budget = budget;
+		}
+
+		/**
+		 * Removes the eldest entries of segment while segment exceeds passed size and cache exceeds its max size.
+		 * Entry with kept key and entries newer than it aren't removed.
+		 */
+		void trimToSize(int segmentMaxSize, String keptKey) {
+			EvictionListener listener = segmentMaxSize < 0 ? null : evictionListener; // clear() doesn't evict
+			List<String> evictedKeys = null;
+			synchronized (this) {
+				while (size > segmentMaxSize && !map.isEmpty() && (segmentMaxSize < 0 || totalSize.get() > maxSize)) {
+					Map.Entry<String, Bitmap> toEvict = map.entrySet().iterator().next();
+					String key = toEvict.getKey();
+					if (key.equals(keptKey)) break;
+					int evictedSize = sizeOf(toEvict.getValue());
+					map.remove(key);
+					size -= evictedSize;
+					totalSize.addAndGet(-evictedSize);
+					if (listener != null) {
+						if (evictedKeys == null) {
+							evictedKeys = new ArrayList<String>();
+						}
+						evictedKeys.add(key);
+					}
+				}
+				if (segmentMaxSize < 0 && map.isEmpty() && size != 0) {
+					throw new IllegalStateException(getClass().getName() + ".sizeOf() is reporting inconsistent results!");
+				}
+			}
+			if (evictedKeys != null) {
+				for (String key : evictedKeys) {
+					listener.onEvicted(key);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.EvictionListener;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带准入控制的W-TinyLFU算法内存缓存器（抗扫描污染）
+ * Memory cache with W-TinyLFU policy. Unlike {@link LruMemoryCache} it isn't flushed by scans of one-off images (i.e.
+ * fast fling through list of thumbnails doesn't evict images which are shown on every screen).<br />
+ * New Bitmaps go into small LRU admission window (1% of max size by default). Bitmap evicted from window is candidate
+ * for main space, it's admitted only if it's requested more often than the Bitmap which main space would evict for it.
+ * Request frequencies are estimated by {@link FrequencySketch count-min sketch} which is aged periodically. Frequency of
+ * key is counted on every {@link #get(String)} (including misses).<br />
+ * Main space is segmented LRU: admitted Bitmaps go into probation segment, Bitmap requested again in probation segment
+ * is promoted into protected segment (80% of main space). Sizes are weighted by bitmap byte size.<br />
+ * <br />
+ * <b>NOTE:</b> This cache uses only strong references for stored Bitmaps.
+ */
+public class TinyLfuMemoryCache implements MemoryCache {
+
+	/*默认准入窗口占缓存大小的百分比*/
+	public static final int DEFAULT_WINDOW_PERCENT = 1;
+	/*保护段占主空间大小的百分比*/
+	private static final int PROTECTED_PERCENT = 80;
+	private static final int INITIAL_SKETCH_CAPACITY = 64;
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private final Map<String, Node> map = new HashMap<String, Node>();
+	private final FrequencySketch sketch = new FrequencySketch(INITIAL_SKETCH_CAPACITY);
+	/*准入窗口、试用段、保护段，链表头为最早访问的图片*/
+	private final Node window = new Node(null, null, 0);
+	private final Node probation = new Node(null, null, 0);
+	private final Node protectedQueue = new Node(null, null, 0);
+
+	private final int maxSize;
+	private final int windowMaxSize;
+	private final int protectedMaxSize;
+	/*各队列中图片字节数量大小*/
+	private int windowSize;
+	private int probationSize;
+	private int protectedSize;
+	private volatile EvictionListener evictionListener;
+
+	/** @param maxSize Maximum sum of the sizes of the Bitmaps in this cache */
+	public TinyLfuMemoryCache(int maxSize) {
+		this(maxSize, DEFAULT_WINDOW_PERCENT);
+	}
+
+	/**
+	 * @param maxSize       Maximum sum of the sizes of the Bitmaps in this cache
+	 * @param windowPercent Size of admission window in percents of max size (1..99)
+	 */
+	public TinyLfuMemoryCache(int maxSize, int windowPercent) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (windowPercent <= 0 || windowPercent >= 100) {
+			throw new IllegalArgumentException("windowPercent must be in range 1..99");
+		}
+		this.maxSize = maxSize;
+		windowMaxSize = Math.max(1, (int) ((long) maxSize * windowPercent / 100));
+		protectedMaxSize = (int) ((long) (maxSize - windowMaxSize) * PROTECTED_PERCENT / 100);
+		window.prev = window.next = window;
+		probation.prev = probation.next = probation;
+		protectedQueue.prev = protectedQueue.next = protectedQueue;
+	}
+
+	@Override
+	public final Bitmap get(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		synchronized (this) {
+			sketch.increment(key);
+			Node node = map.get(key);
+			if (node == null) return null;
+
+			onAccess(node);
+			return node.value;
+		}
+	}
+
+	@Override
+	public final boolean put(String key, Bitmap value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		List<String> evictedKeys;
+		synchronized (this) {
+			Node node = map.get(key);
+			if (node != null) {
+				int size = sizeOf(value);
+				addSize(node.queue, size - node.size);
+				node.value = value;
+				node.size = size;
+				onAccess(node);
+			} else {
+				node = new Node(key, value, sizeOf(value));
+				map.put(key, node);
+				sketch.ensureCapacity(map.size());
+				link(node, window, WINDOW);
+			}
+			evictedKeys = evict();
+		}
+		EvictionListener listener = evictionListener;
+		if (listener != null && evictedKeys != null) {
+			for (String evictedKey : evictedKeys) {
+				listener.onEvicted(evictedKey);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public final Bitmap remove(String key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		synchronized (this) {
+			Node node = map.remove(key);
+			if (node == null) return null;
+
+			unlink(node);
+			return node.value;
+		}
+	}
+
+	@Override
+	public Collection<String> keys() {
+		synchronized (this) {
+			return new HashSet<String>(map.keySet());
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (this) {
+			map.clear();
+			sketch.clear();
+			window.prev = window.next = window;
+			probation.prev = probation.next = probation;
+			protectedQueue.prev = protectedQueue.next = protectedQueue;
+			windowSize = probationSize = protectedSize = 0;
+		}
+	}
+
+	/** @return Sum of the sizes of the Bitmaps in this cache */
+	public synchronized int size() {
+		return windowSize + probationSize + protectedSize;
+	}
+
+	/**
+	 * Sets listener of Bitmaps evicted by cache policy
+	 *
+	 * @param evictionListener Listener; <b>null</b> - evictions aren't reported
+	 */
+	public void setEvictionListener(EvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	/** Moves requested Bitmap to the tail of its LRU queue, Bitmap requested in probation segment is promoted */
+	private void onAccess(Node node) {
+		unlink(node);
+		if (node.queue == PROBATION || node.queue == PROTECTED) {
+			link(node, protectedQueue, PROTECTED);
+			// Protected segment is overflowed - demote its eldest Bitmaps into probation segment
+			while (protectedSize > protectedMaxSize && protectedQueue.next != node) {
+				Node demoted = protectedQueue.next;
+				unlink(demoted);
+				link(demoted, probation, PROBATION);
+			}
+		} else {
+			link(node, window, WINDOW);
+		}
+	}
+
+	/**
+	 * 窗口超出大小时将最早的图片作为候选者，与主空间中将被淘汰的图片比较访问频率
+	 * Moves the eldest Bitmaps out of window while it exceeds its size. Every such Bitmap becomes candidate for main
+	 * space. Candidate is admitted if it's more popular than victims (the eldest Bitmaps of main space) which should be
+	 * evicted to give space for candidate.
+	 *
+	 * @return Keys of evicted Bitmaps (if eviction listener is set) or <b>null</b>
+	 */
+	private List<String> evict() {
+		List<String> evictedKeys = null;
+		while (windowSize > windowMaxSize && window.next != window) {
+			Node candidate = window.next;
+			unlink(candidate);
+			if (candidate.size > maxSize - windowMaxSize) {
+				evictedKeys = remove(candidate, evictedKeys); // Bitmap doesn't fit main space at all
+				continue;
+			}
+
+			int candidateFrequency = sketch.frequency(candidate.key);
+			boolean admitted = true;
+			while (windowSize + probationSize + protectedSize + candidate.size > maxSize) {
+				Node victim = probation.next != probation ? probation.next : protectedQueue.next;
+				if (victim == protectedQueue) break;
+
+				if (candidateFrequency <= sketch.frequency(victim.key)) {
+					admitted = false;
+					break;
+				}
+				unlink(victim);
+				evictedKeys = remove(victim, evictedKeys);
+			}
+			if (admitted) {
+				link(candidate, probation, PROBATION);
+			} else {
+				evictedKeys = remove(candidate, evictedKeys);
+			}
+		}
+		// Window can keep more than its size only while main space is empty
+		while (size() > maxSize && window.next != window) {
+			Node eldest = window.next;
+			unlink(eldest);
+			evictedKeys = remove(eldest, evictedKeys);
+		}
+		return evictedKeys;
+	}
+
+	/** Removes unlinked node from map and adds its key to evicted keys (if eviction listener is set) */
+	private List<String> remove(Node node, List<String> evictedKeys) {
+		map.remove(node.key);
+		if (evictionListener == null) return evictedKeys;
+		if (evictedKeys == null) {
+			evictedKeys = new ArrayList<String>();
+		}
+		evictedKeys.add(node.key);
+		return evictedKeys;
+	}
+
+	/** Adds node to the tail of queue */
+	private void link(Node node, Node head, int queue) {
+		node.queue = queue;
+		node.prev = head.prev;
+		node.next = head;
+		head.prev.next = node;
+		head.prev = node;
+		addSize(queue, node.size);
+	}
+
+	private void unlink(Node node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = node.next = null;
+		addSize(node.queue, -node.size);
+	}
+
+	private void addSize(int queue, int delta) {
+		switch (queue) {
+			case WINDOW:
+				windowSize += delta;
+				break;
+			case PROBATION:
+				probationSize += delta;
+				break;
+			default:
+				protectedSize += delta;
+				break;
+		}
+	}
+
+	/**
+	 * 进行计算图片大小
+	 * Returns the size {@code Bitmap} in bytes.
+	 * <p/>
+	 * An entry's size must not change while it is in the cache.
+	 */
+	private static int sizeOf(Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+
+	@Override
+	public final String toString() {
+		return String.format("TinyLfuCache[maxSize=%d,windowSize=%d]", maxSize, windowMaxSize);
+	}
+
+	/** Cache entry, node of intrusive doubly-linked LRU queue */
+	private static final class Node {
+		final String key;
+		Bitmap value;
+		int size;
+		int queue;
+		Node prev;
+		Node next;
+
+		Node(String key, Bitmap value, int size) {
+			this.key = key;
+			this.value = value;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.EvictionListener;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按图片地址索引缓存key的内存缓存装饰器
+ * Decorator for {@link MemoryCache}. Keeps index from image URI to keys of its cached sizes (see
+ * {@link MemoryCacheUtils#generateKey(String, com.nostra13.universalimageloader.core.assist.ImageSize)}), so keys of
+ * image URI are found without scanning of all cache keys.<br />
+ * Index is updated on every put and remove. Bitmaps evicted by {@link LruMemoryCache}, {@link SegmentedLruMemoryCache}
+ * and {@link TinyLfuMemoryCache} leave index when they are evicted. Evictions of other caches aren't reported, so keys
+ * of such caches are checked (by {@link MemoryCache#get(String)}) when they are requested from index and stale keys are
+ * dropped then. Unlike prefix search of {@link MemoryCacheUtils} over all cache keys index matches image URI exactly.
+ * <br />
+ * Optionally cache can keep only one size of every image: when Bitmap is put then other sizes of its image are removed
+ * from cache (like {@link FuzzyKeyMemoryCache} does, but without scanning of all cache keys).
+ */
+public class UriIndexedMemoryCache implements MemoryCache {
+
+	private final MemoryCache cache;
+	private final boolean denyMultipleSizes;
+	/*被装饰的缓存是否通知淘汰的key*/
+	private final boolean evictionsReported;
+
+	/*图片地址 -> 该图片各个尺寸的缓存key*/
+	private final Map<String, Set<String>> keysForUris = new HashMap<String, Set<String>>();
+
+	public UriIndexedMemoryCache(MemoryCache cache) {
+		this(cache, false);
+	}
+
+	/**
+	 * @param cache             Decorated cache
+	 * @param denyMultipleSizes <b>true</b> - other sizes of image are removed from cache when Bitmap is put;
+	 *                          <b>false</b> - cache can contain multiple sizes of the same image
+	 */
+	public UriIndexedMemoryCache(MemoryCache cache, boolean denyMultipleSizes) {
+		this.cache = cache;
+		this.denyMultipleSizes = denyMultipleSizes;
+
+		EvictionListener evictionListener = new EvictionListener() {
+			@Override
+			public void onEvicted(String key) {
+				synchronized (UriIndexedMemoryCache.this) {
+					removeFromIndex(key);
+				}
+			}
+		};
+		if (cache instanceof LruMemoryCache) {
+			((LruMemoryCache) cache).setEvictionListener(evictionListener);
+			evictionsReported = true;
+		} else if (cache instanceof SegmentedLruMemoryCache) {
+			((SegmentedLruMemoryCache) cache).setEvictionListener(evictionListener);
+			evictionsReported = true;
+		} else if (cache instanceof TinyLfuMemoryCache) {
+			((TinyLfuMemoryCache) cache).setEvictionListener(evictionListener);
+			evictionsReported = true;
+		} else {
+			evictionsReported = false;
+		}
+	}
+
+	@Override
+	public boolean put(String key, Bitmap value) {
+		List<String> keysToRemove = null;
+		synchronized (this) {
+			if (denyMultipleSizes) {
+				Set<String> keys = keysForUris.get(MemoryCacheUtils.getImageUri(key));
+				if (keys != null) {
+					keysToRemove = new ArrayList<String>(keys);
+					keysToRemove.remove(key);
+					for (String keyToRemove : keysToRemove) {
+						removeFromIndex(keyToRemove);
+					}
+				}
+			}
+			addToIndex(key);
+		}
+		if (keysToRemove != null) {
+			for (String keyToRemove : keysToRemove) {
+				cache.remove(keyToRemove);
+			}
+		}
+		boolean putSuccessfully = cache.put(key, value);
+		synchronized (this) {
+			addToIndex(key); // Key could be removed from index by concurrent remove
+		}
+		return putSuccessfully;
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		Bitmap value = cache.get(key);
+		if (value == null) {
+			synchronized (this) {
+				removeFromIndex(key); // Bitmap could be evicted without notification
+			}
+		}
+		return value;
+	}
+
+	@Override
+	public Bitmap remove(String key) {
+		synchronized (this) {
+			removeFromIndex(key);
+		}
+		return cache.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		synchronized (this) {
+			keysForUris.clear();
+		}
+		cache.clear();
+	}
+
+	@Override
+	public Collection<String> keys() {
+		return cache.keys();
+	}
+
+	/**
+	 * 获取图片地址对应的所有缓存key
+	 * Returns keys of all cached sizes of image.<br />
+	 * If decorated cache doesn't report evictions then every indexed key is checked by {@link MemoryCache#get(String)}
+	 * (so it's counted as access to cached Bitmap) and keys of evicted Bitmaps are dropped from index.
+	 *
+	 * @param imageUri Image URI
+	 * @return Keys for image URI (empty list if there are no such keys)
+	 */
+	public List<String> keysForUri(String imageUri) {
+		List<String> keys;
+		synchronized (this) {
+			Set<String> indexedKeys = keysForUris.get(imageUri);
+			if (indexedKeys == null) return new ArrayList<String>(0);
+			keys = new ArrayList<String>(indexedKeys);
+		}
+		if (!evictionsReported) {
+			for (Iterator<String> it = keys.iterator(); it.hasNext(); ) {
+				if (get(it.next()) == null) {
+					it.remove();
+				}
+			}
+		}
+		return keys;
+	}
+
+	/** @return Memory cache which is decorated by this cache */
+	public MemoryCache getWrappedCache() {
+		return cache;
+	}
+
+	private void addToIndex(String key) {
+		String imageUri = MemoryCacheUtils.getImageUri(key);
+		Set<String> keys = keysForUris.get(imageUri);
+		if (keys == null) {
+			keys = new HashSet<String>(2);
+			keysForUris.put(imageUri, keys);
+		}
+		keys.add(key);
+	}
+
+	private void removeFromIndex(String key) {
+		String imageUri = MemoryCacheUtils.getImageUri(key);
+		Set<String> keys = keysForUris.get(imageUri);
+		if (keys != null && keys.remove(key) && keys.isEmpty()) {
+			keysForUris.remove(imageUri);
+		}
+	}
+}
@@ -20,10 +20,10 @@ import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 /**
@@ -39,20 +39,38 @@ import java.util.Set;
  */
 public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 	/**
-	 * Contains strong references to stored objects (keys) and last object usage date (in milliseconds). If hard cache
-	 * size will exceed limit then object with the least frequently usage is deleted (but it continue exist at
-	 * {@link #softMap} and can be collected by GC at any time)
+	 * Contains strong references to stored objects (keys) and their usage counts. If hard cache size will exceed limit
+	 * then object with the least frequently usage is deleted (but it continue exist at {@link #softMap} and can be
+	 * collected by GC at any time)
 	 */
-	private final Map<Bitmap, Integer> usingCounts = Collections.synchronizedMap(new HashMap<Bitmap, Integer>());
+	private final Map<String, Entry> usingCounts = new HashMap<String, Entry>();
+	/**
+	 * 按使用次数升序排列的频率桶链表（哨兵节点），每个桶中的key按进入桶的顺序排列
+	 * Sentinel of list of frequency buckets in ascending order of usage counts. Keys of bucket are in order of entering
+	 * the bucket. So the least frequently used object is found, and usage count is incremented, in constant time.
+	 */
+	private final FrequencyBucket buckets = new FrequencyBucket(-1);
 
 	public UsingFreqLimitedMemoryCache(int sizeLimit) {
 		super(sizeLimit);
+		buckets.prev = buckets.next = buckets;
 	}
 
 	@Override
 	public boolean put(String key, Bitmap value) {
 		if (super.put(key, value)) {
-			usingCounts.put(value, 0);
+			synchronized (usingCounts) {
+				Entry previousEntry = usingCounts.remove(key);
+				if (previousEntry != null) {
+					removeKeyFromBucket(key, previousEntry.bucket);
+				}
+				FrequencyBucket bucket = buckets.next;
+				if (bucket.usageCount != 0) {
+					bucket = insertBucketAfter(buckets, 0);
+				}
+				bucket.keys.add(key);
+				usingCounts.put(key, new Entry(value, bucket));
+			}
 			return true;
 		} else {
 			return false;
@@ -64,9 +82,18 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 		Bitmap value = super.get(key);
 		// Increment usage count for value if value is contained in hardCahe
 		if (value != null) {
-			Integer usageCount = usingCounts.get(value);
-			if (usageCount != null) {
-				usingCounts.put(value, usageCount + 1);
+			synchronized (usingCounts) {
+				Entry entry = usingCounts.get(key);
+				if (entry != null) {
+					FrequencyBucket bucket = entry.bucket;
+					FrequencyBucket nextBucket = bucket.next;
+					if (nextBucket.usageCount != bucket.usageCount + 1) {
+						nextBucket = insertBucketAfter(bucket, bucket.usageCount + 1);
+					}
+					nextBucket.keys.add(key);
+					entry.bucket = nextBucket;
+					removeKeyFromBucket(key, bucket);
+				}
 			}
 		}
 		return value;
@@ -74,16 +101,21 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	public Bitmap remove(String key) {
-		Bitmap value = super.get(key);
-		if (value != null) {
-			usingCounts.remove(value);
+		synchronized (usingCounts) {
+			Entry entry = usingCounts.remove(key);
+			if (entry != null) {
+				removeKeyFromBucket(key, entry.bucket);
+			}
 		}
 		return super.remove(key);
 	}
 
 	@Override
 	public void clear() {
-		usingCounts.clear();
+		synchronized (usingCounts) {
+			usingCounts.clear();
+			buckets.prev = buckets.next = buckets;
+		}
 		super.clear();
 	}
 
@@ -94,29 +126,66 @@ public class UsingFreqLimitedMemoryCache extends LimitedMemoryCache {
 
 	@Override
 	protected Bitmap removeNext() {
-		Integer minUsageCount = null;
-		Bitmap leastUsedValue = null;
-		Set<Entry<Bitmap, Integer>> entries = usingCounts.entrySet();
 		synchronized (usingCounts) {
-			for (Entry<Bitmap, Integer> entry : entries) {
-				if (leastUsedValue == null) {
-					leastUsedValue = entry.getKey();
-					minUsageCount = entry.getValue();
-				} else {
-					Integer lastValueUsage = entry.getValue();
-					if (lastValueUsage < minUsageCount) {
-						minUsageCount = lastValueUsage;
-						leastUsedValue = entry.getKey();
-					}
-				}
+			FrequencyBucket leastUsedBucket = buckets.next;
+			if (leastUsedBucket == buckets) return null;
+
+			Iterator<String> it = leastUsedBucket.keys.iterator();
+			String leastUsedKey = it.next();
+			it.remove();
+			if (leastUsedBucket.keys.isEmpty()) {
+				unlinkBucket(leastUsedBucket);
 			}
+			return usingCounts.remove(leastUsedKey).value;
 		}
-		usingCounts.remove(leastUsedValue);
-		return leastUsedValue;
 	}
 
 	@Override
 	protected Reference<Bitmap> createReference(Bitmap value) {
 		return new WeakReference<Bitmap>(value);
 	}
+
+	private void removeKeyFromBucket(String key, FrequencyBucket bucket) {
+		bucket.keys.remove(key);
+		if (bucket.keys.isEmpty()) {
+			unlinkBucket(bucket);
+		}
+	}
+
+	private static FrequencyBucket insertBucketAfter(FrequencyBucket bucket, int usageCount) {
+		FrequencyBucket newBucket = new FrequencyBucket(usageCount);
+		newBucket.prev = bucket;
+		newBucket.next = bucket.next;
+		bucket.next.prev = newBucket;
+		bucket.next = newBucket;
+		return newBucket;
+	}
+
+	private static void unlinkBucket(FrequencyBucket bucket) {
+		bucket.prev.next = bucket.next;
+		bucket.next.prev = bucket.prev;
+	}
+
+	/** Stored object and bucket of its usage count */
+	private static final class Entry {
+		final Bitmap value;
+		FrequencyBucket bucket;
+
+		Entry(Bitmap value, FrequencyBucket bucket) {
+			this.value = value;
+			this.bucket = bucket;
+		}
+	}
+
+	/** Keys of objects with the same usage count */
+	private static final class FrequencyBucket {
+		final int usageCount;
+		final Set<String> keys = new LinkedHashSet<String>();
+		FrequencyBucket prev;
+		FrequencyBucket next;
+
+		FrequencyBucket(int usageCount) {
+			this.usageCount = usageCount;
+		}
+	}
 }
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 当前显示中的图片缓存层（位于内存缓存之上）
+ * Tier of "active" images on top of {@link MemoryCache}. Image (by memory cache key) is active while it's displayed
+ * in some {@link ImageAware ImageAwares} which wrap views. Every ImageAware which displays image acquires it,
+ * ImageAware releases image when it's rebound (another image or placeholder is displayed in it) or when its view is
+ * collected by GC.<br />
+ * Acquired image is moved out of memory cache, so displayed images don't take memory cache slots and memory cache is
+ * sized for off-screen images only. Image which isn't acquired by anyone anymore is returned to memory cache. Active
+ * images are referenced weakly (views hold them), so only cached bitmap itself is acquired: if displayed bitmap is
+ * post-processed version of cached one then nothing holds cached bitmap and it's left in memory cache.<br />
+ * Also keeps track of displayed bitmaps (and bitmaps which are going to be displayed) so bitmap which is still on
+ * screen isn't reused. Bitmaps passed to non-view ImageAwares are considered as displayed while they're alive
+ * (application code holds them).<br />
+ * Invalidated image (memory cache is cleared or image is removed from it) isn't returned by this tier anymore and it
+ * isn't returned into memory cache when it's released.
+ */
+final class ActiveResources {
+
+	private static final int MIN_PRUNE_THRESHOLD = 64;
+
+	private final MemoryCache memoryCache;
+
+	/*当前显示中的图片，key为内存缓存key*/
+	private final Map<String, ActiveResource> resources = new HashMap<String, ActiveResource>();
+	/*ImageAware当前显示的图片*/
+	private final Map<Integer, Binding> bindings = new HashMap<Integer, Binding>();
+	/*bitmap被显示（或等待显示）的次数*/
+	private final Map<Bitmap, Integer> displayCounts = new WeakHashMap<Bitmap, Integer>();
+	private int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+	ActiveResources(MemoryCache memoryCache) {
+		this.memoryCache = memoryCache;
+	}
+
+	/**
+	 * 获取当前显示中的图片
+	 * Returns active image for memory cache key
+	 *
+	 * @return Active bitmap or <b>null</b> if image isn't displayed at this moment
+	 */
+	synchronized Bitmap get(String memoryCacheKey) {
+		ActiveResource resource = resources.get(memoryCacheKey);
+		if (resource == null) return null;
+
+		Bitmap bitmap = resource.bitmap.get();
+		return bitmap == null || bitmap.isRecycled() ? null : bitmap;
+	}
+
+	/**
+	 * 记录ImageAware中显示的图片，ImageAware之前显示的图片被释放
+	 * Registers image displayed in ImageAware. Image which was displayed in ImageAware before is released.
+	 *
+	 * @param memoryCacheKey Memory cache key of displayed image
+	 * @param bitmap         Displayed bitmap (can be post-processed version of cached bitmap)
+	 */
+	synchronized void onDisplayed(ImageAware imageAware, String memoryCacheKey, Bitmap bitmap) {
+		retain(bitmap);
+		if (imageAware.getWrappedView() == null) return; // Bitmap is given to application code
+
+		int imageAwareId = imageAware.getId();
+		Binding previous = bindings.get(imageAwareId);
+		ActiveResource resource;
+		if (previous != null && previous.resource != null && previous.resource == resources.get(memoryCacheKey)
+				&& previous.resource.bitmap.get() == bitmap) {
+			// Same image is displayed again, it's acquired already
+			resource = previous.resource;
+			release(previous.bitmap.get());
+			previous = null;
+		} else {
+			resource = acquire(memoryCacheKey, bitmap);
+		}
+		bindings.put(imageAwareId, new Binding(imageAware, memoryCacheKey, resource, bitmap));
+		unbind(previous);
+
+		if (bindings.size() > pruneThreshold) {
+			pruneCollected();
+		}
+	}
+
+	/**
+	 * 记录ImageAware不再显示图片（显示了占位图片）
+	 * Registers that ImageAware doesn't display image anymore (i.e. placeholder is displayed)
+	 */
+	synchronized void onUnbound(ImageAware imageAware) {
+		unbind(bindings.remove(imageAware.getId()));
+	}
+
+	/** Marks bitmap as used (i.e. it's going to be displayed), so it isn't reused until it's {@link #release(Bitmap)} */
+	synchronized void retain(Bitmap bitmap) {
+		Integer count = displayCounts.get(bitmap);
+		displayCounts.put(bitmap, count == null ? 1 : count + 1);
+	}
+
+	/** Releases bitmap which was {@link #retain(Bitmap) retained} */
+	synchronized void release(Bitmap bitmap) {
+		if (bitmap == null) return;
+		Integer count = displayCounts.get(bitmap);
+		if (count == null || count <= 1) {
+			displayCounts.remove(bitmap);
+		} else {
+			displayCounts.put(bitmap, count - 1);
+		}
+	}
+
+	/** @return <b>true</b> - if bitmap is displayed somewhere; <b>false</b> - otherwise */
+	synchronized boolean isDisplayed(Bitmap bitmap) {
+		return displayCounts.containsKey(bitmap);
+	}
+
+	/**
+	 * 使图片地址对应的所有显示中的图片失效
+	 * Invalidates active images (all sizes) of image URI. Invalidated images aren't returned into memory cache.
+	 */
+	synchronized void invalidate(String imageUri) {
+		Iterator<String> it = resources.keySet().iterator();
+		while (it.hasNext()) {
+			if (MemoryCacheUtils.getImageUri(it.next()).equals(imageUri)) {
+				it.remove();
+			}
+		}
+	}
+
+	/** Invalidates all active images. Invalidated images aren't returned into memory cache. */
+	synchronized void invalidateAll() {
+		resources.clear();
+	}
+
+	/**
+	 * Acquires image if displayed bitmap is cached (or active) bitmap. Image which wasn't active is moved from memory
+	 * cache into this tier.
+	 *
+	 * @return Acquired image or <b>null</b> if displayed bitmap isn't cached in memory (so there is nothing to return
+	 * into memory cache) or if it's post-processed version of cached bitmap (so cached bitmap stays in memory cache)
+	 */
+	private ActiveResource acquire(String memoryCacheKey, Bitmap displayedBitmap) {
+		ActiveResource resource = resources.get(memoryCacheKey);
+		Bitmap activeBitmap = resource == null ? null : resource.bitmap.get();
+		if (activeBitmap == null) {
+			// Image isn't active or active bitmap was collected (views don't hold it anymore)
+			if (memoryCache.get(memoryCacheKey) != displayedBitmap) return null;
+			Bitmap bitmap = memoryCache.remove(memoryCacheKey);
+			if (bitmap == null) return null;
+
+			if (resource == null) {
+				resource = new ActiveResource(bitmap);
+				resources.put(memoryCacheKey, resource);
+			} else {
+				resource.bitmap = new WeakReference<Bitmap>(bitmap);
+			}
+		} else if (activeBitmap != displayedBitmap) {
+			return null;
+		}
+		resource.acquisitions++;
+		return resource;
+	}
+
+	/**
+	 * Releases image of binding. Image which isn't acquired by anyone anymore is returned into memory cache (if it
+	 * wasn't invalidated).
+	 */
+	private void unbind(Binding binding) {
+		if (binding == null) return;
+		release(binding.bitmap.get());
+		ActiveResource resource = binding.resource;
+		if (resource == null || --resource.acquisitions > 0) return;
+		// Invalidated image was removed from this tier already
+		if (resources.get(binding.memoryCacheKey) != resource) return;
+
+		resources.remove(binding.memoryCacheKey);
+		Bitmap bitmap = resource.bitmap.get();
+		if (bitmap != null && !bitmap.isRecycled()) {
+			memoryCache.put(binding.memoryCacheKey, bitmap);
+		}
+	}
+
+	/** Releases images of ImageAwares which were collected by GC */
+	private void pruneCollected() {
+		Iterator<Binding> it = bindings.values().iterator();
+		while (it.hasNext()) {
+			Binding binding = it.next();
+			if (binding.imageAware.isCollected()) {
+				it.remove();
+				unbind(binding);
+			}
+		}
+		pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, bindings.size() * 2);
+	}
+
+	/** Displayed image and number of ImageAwares which acquired it */
+	private static final class ActiveResource {
+		Reference<Bitmap> bitmap;
+		int acquisitions;
+
+		ActiveResource(Bitmap bitmap) {
+			this.bitmap = new WeakReference<Bitmap>(bitmap);
+		}
+	}
+
+	/** Image displayed in ImageAware */
+	private static final class Binding {
+		final ImageAware imageAware;
+		final String memoryCacheKey;
+		/*ImageAware持有引用计数的图片（图片不在内存缓存中时为null）*/
+		final ActiveResource resource;
+		final Reference<Bitmap> bitmap;
+
+		Binding(ImageAware imageAware, String memoryCacheKey, ActiveResource resource, Bitmap bitmap) {
+			this.imageAware = imageAware;
+			this.memoryCacheKey = memoryCacheKey;
+			this.resource = resource;
+			this.bitmap = new WeakReference<Bitmap>(bitmap);
+		}
+	}
+
+	/**
+	 * Decorator for {@link BitmapPool}. Doesn't accept bitmaps which are displayed at this moment.
+	 * 过滤正在显示的bitmap的对象池
+	 */
+	static final class OffScreenBitmapPool implements BitmapPool {
+
+		private final BitmapPool pool;
+		private final ActiveResources activeResources;
+
+		OffScreenBitmapPool(BitmapPool pool, ActiveResources activeResources) {
+			this.pool = pool;
+			this.activeResources = activeResources;
+		}
+
+		@Override
+		public boolean put(Bitmap bitmap) {
+			return !activeResources.isDisplayed(bitmap) && pool.put(bitmap);
+		}
+
+		@Override
+		public Bitmap get(int width, int height, Bitmap.Config config) {
+			return pool.get(width, height, config);
+		}
+
+		@Override
+		public void clear() {
+			pool.clear();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+/**
+ * 网络下载并发数的自适应控制器 (AIMD: 加性增加，乘性减少)
+ * Controls number of concurrent network downloads by AIMD (additive increase, multiplicative decrease) rule.
+ * Downloads are measured by windows. If aggregate throughput (bytes/sec) of window is better than throughput of
+ * previous window then limit is increased by one. If average latency grows or too many downloads fail then limit is
+ * halved. Limit always stays in [min, max] bounds.
+ *
+ * @see ImageLoaderConfiguration.Builder#adaptiveThreadPoolSize(int, int)
+ */
+final class AdaptiveConcurrencyController {
+
+	private static final int MIN_WINDOW_SIZE = 4;
+	/** Throughput must grow at least by this percent to increase limit */
+	private static final int THROUGHPUT_GAIN_PERCENT = 5;
+	/** Average latency growth (in percents) which is treated as congestion */
+	private static final int LATENCY_GROWTH_PERCENT = 50;
+	/** Failure ratio (in percents) of window which is treated as congestion */
+	private static final int FAILURE_PERCENT = 25;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private volatile int limit;
+
+	// Current window
+	private long windowStartTime;
+	private int windowSamples;
+	private int windowFailures;
+	private long windowBytes;
+	private long windowLatency;
+
+	// Previous window
+	private long previousThroughput;
+	private long previousLatency;
+
+	AdaptiveConcurrencyController(int minLimit, int maxLimit, int initialLimit) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	/** @return Current limit of concurrent downloads */
+	int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Registers finished network download.
+	 *
+	 * @param bytes      Downloaded bytes
+	 * @param latency    Time (in milliseconds) till download stream was opened
+	 * @param successful <b>true</b> - if image was downloaded; <b>false</b> - if download failed
+	 * @return <b>true</b> - if limit was changed; <b>false</b> - otherwise
+	 */
+	synchronized boolean onDownloadFinished(long bytes, long latency, boolean successful) {
+		long now = System.currentTimeMillis();
+		if (windowSamples == 0) {
+			windowStartTime = now - latency;
+		}
+		windowSamples++;
+		windowBytes += bytes;
+		if (successful) {
+			windowLatency += latency;
+		} else {
+			windowFailures++;
+		}
+		if (windowSamples < Math.max(MIN_WINDOW_SIZE, 2 * limit)) return false;
+
+		long throughput = windowBytes * 1000 / Math.max(1, now - windowStartTime);
+		int successes = windowSamples - windowFailures;
+		long averageLatency = successes > 0 ? windowLatency / successes : previousLatency;
+		boolean congested = windowFailures * 100 > windowSamples * FAILURE_PERCENT
+				|| (previousLatency > 0 && averageLatency * 100 > previousLatency * (100 + LATENCY_GROWTH_PERCENT));
+		boolean improved = throughput * 100 > previousThroughput * (100 + THROUGHPUT_GAIN_PERCENT);
+
+		previousThroughput = throughput;
+		previousLatency = averageLatency;
+		windowSamples = 0;
+		windowFailures = 0;
+		windowBytes = 0;
+		windowLatency = 0;
+
+		int newLimit = limit;
+		if (congested) {
+			newLimit = Math.max(minLimit, limit / 2);
+		} else if (improved) {
+			newLimit = Math.min(maxLimit, limit + 1);
+		}
+		if (newLimit == limit) return false;
+		limit = newLimit;
+		return true;
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 以int为key的并发Map，读操作无锁，key不需要装箱
+ * Concurrent map with primitive <b>int</b> keys (no {@link Integer} boxing). Uses open addressing with linear probing.
+ * Reads are lock-free, writes are serialized by map monitor.<br />
+ * Slot's key is written once before slot's value is published, and it is never changed while slot is in table (removed
+ * entry leaves tombstone with the same key). So reader which sees non-null value of slot always sees its key. Table is
+ * rebuilt (not modified in place) on resize and published by volatile write.
+ *
+ * @param <V> Type of values
+ */
+final class ConcurrentIntObjectMap<V> {
+
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final Object TOMBSTONE = new Object();
+
+	private volatile Table table;
+	/** Number of live entries, guarded by this */
+	private int size;
+	/** Number of used slots (live entries and tombstones) of current table, guarded by this */
+	private int usedSlots;
+
+	ConcurrentIntObjectMap() {
+		table = new Table(DEFAULT_CAPACITY);
+	}
+
+	/** @return Value for incoming key or <b>null</b> if there is no such key in map */
+	@SuppressWarnings("unchecked")
+	V get(int key) {
+		Table t = table;
+		int mask = t.keys.length - 1;
+		int i = hash(key) & mask;
+		while (true) {
+			Object value = t.values.get(i);
+			if (value == null) return null;
+			if (t.keys[i] == key) {
+				return value == TOMBSTONE ? null : (V) value;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	/**
+	 * Associates value with key
+	 *
+	 * @return Previous value for key or <b>null</b> if there was no value
+	 */
+	synchronized V put(int key, V value) {
+		if (value == null) throw new IllegalArgumentException("value must not be null");
+		if (usedSlots + 1 > table.keys.length * 3 / 4) {
+			rebuild(size + 1);
+		}
+		Table t = table;
+		int mask = t.keys.length - 1;
+		int i = hash(key) & mask;
+		while (true) {
+			Object current = t.values.get(i);
+			if (current == null) {
+				t.keys[i] = key;
+				t.values.set(i, value); // publishes key
+				usedSlots++;
+				size++;
+				return null;
+			}
+			if (t.keys[i] == key) {
+				t.values.set(i, value);
+				if (current == TOMBSTONE) {
+					size++;
+					return null;
+				}
+				return cast(current);
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	/**
+	 * Removes value for key
+	 *
+	 * @return Removed value or <b>null</b> if there was no value
+	 */
+	synchronized V remove(int key) {
+		Table t = table;
+		int mask = t.keys.length - 1;
+		int i = hash(key) & mask;
+		while (true) {
+			Object current = t.values.get(i);
+			if (current == null) return null;
+			if (t.keys[i] == key) {
+				if (current == TOMBSTONE) return null;
+				t.values.set(i, TOMBSTONE);
+				size--;
+				return cast(current);
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	/**
+	 * Removes entry for key only if key is mapped to incoming value (values are compared by reference)
+	 *
+	 * @return <b>true</b> - if entry was removed; <b>false</b> - otherwise
+	 */
+	synchronized boolean remove(int key, V value) {
+		Table t = table;
+		int mask = t.keys.length - 1;
+		int i = hash(key) & mask;
+		while (true) {
+			Object current = t.values.get(i);
+			if (current == null) return false;
+			if (t.keys[i] == key) {
+				if (current != value || current == TOMBSTONE) return false;
+				t.values.set(i, TOMBSTONE);
+				size--;
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	/** @return Number of entries in map */
+	synchronized int size() {
+		return size;
+	}
+
+	/** Removes all entries */
+	synchronized void clear() {
+		table = new Table(DEFAULT_CAPACITY);
+		size = 0;
+		usedSlots = 0;
+	}
+
+	/** Builds new table for incoming number of entries without tombstones and publishes it */
+	private void rebuild(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (expectedSize > capacity / 2) {
+			capacity <<= 1;
+		}
+		Table oldTable = table;
+		Table newTable = new Table(capacity);
+		int mask = capacity - 1;
+		for (int j = 0; j < oldTable.keys.length; j++) {
+			Object value = oldTable.values.get(j);
+			if (value == null || value == TOMBSTONE) continue;
+			int i = hash(oldTable.keys[j]) & mask;
+			while (newTable.values.get(i) != null) {
+				i = (i + 1) & mask;
+			}
+			newTable.keys[i] = oldTable.keys[j];
+			newTable.values.set(i, value);
+		}
+		usedSlots = size;
+		table = newTable;
+	}
+
+	@SuppressWarnings("unchecked")
+	private V cast(Object value) {
+		return (V) value;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static final class Table {
+		final int[] keys;
+		final AtomicReferenceArray<Object> values;
+
+		Table(int capacity) {
+			keys = new int[capacity];
+			values = new AtomicReferenceArray<Object>(capacity);
+		}
+	}
+}
@@ -44,6 +44,9 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -57,28 +60,103 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @since 1.5.6
  */
 public class DefaultConfigurationFactory {
+
+	private static final int PRIORITY_QUEUE_INITIAL_CAPACITY = 11;
+	private static final int STAGE_QUEUE_CAPACITY_PER_THREAD = 4;
+
 	/**
 	 * Creates default implementation of task executor
 	 * 任务执行者的构造方法，当前用于实现默认的task executor
 	 */
 	public static Executor createExecutor(int threadPoolSize, int threadPriority,
 			QueueProcessingType tasksProcessingType) {
-		//初始化队列算法类型 默认为LIFO
-		boolean lifo = tasksProcessingType == QueueProcessingType.LIFO;
+		return createExecutor(threadPoolSize, threadPriority, tasksProcessingType, 0);
+	}
+
+	/**
+	 * Creates default implementation of task executor
+	 * 任务执行者的构造方法，当前用于实现默认的task executor
+	 *
+	 * @param taskQueueCapacity Capacity of {@link QueueProcessingType#LIFO LIFO} task queue. If queue is full then the
+	 *                          oldest task is dropped and cancelled. <b>0</b> - unbounded queue.
+	 */
+	public static Executor createExecutor(int threadPoolSize, int threadPriority,
+			QueueProcessingType tasksProcessingType, int taskQueueCapacity) {
 		//初始化队列 根据不同的算法类型，创建不同的队列
-		BlockingQueue<Runnable> taskQueue =
-				lifo ? new LIFOLinkedBlockingDeque<Runnable>() : new LinkedBlockingQueue<Runnable>();
+		BlockingQueue<Runnable> taskQueue;
+		switch (tasksProcessingType) {
+			case LIFO:
+				if (taskQueueCapacity > 0) {
+					taskQueue = new LIFOLinkedBlockingDeque<Runnable>(taskQueueCapacity, new DroppedTaskCanceller());
+				} else {
+					taskQueue = new LIFOLinkedBlockingDeque<Runnable>();
+				}
+				break;
+			case PRIORITY:
+				taskQueue = new PriorityBlockingQueue<Runnable>(PRIORITY_QUEUE_INITIAL_CAPACITY,
+						new PrioritizedTask.PriorityComparator());
+				break;
+			case FIFO:
+			default:
+				taskQueue = new LinkedBlockingQueue<Runnable>();
+				break;
+		}
 		return new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, taskQueue,
 				createThreadFactory(threadPriority, "uil-pool-"));
 	}
 
 	/**
-	 * Creates default implementation of task distributor
+	 * Creates executor for stage of staged pipeline. Stage queue is bounded, so if next stage can't accept task then
+	 * task is executed on thread of previous stage (back pressure).
+	 * 创建流水线阶段的执行者，队列有界
+	 */
+	public static Executor createStageExecutor(int threadPoolSize, int threadPriority, String threadNamePrefix) {
+		BlockingQueue<Runnable> stageQueue = new LinkedBlockingQueue<Runnable>(
+				threadPoolSize * STAGE_QUEUE_CAPACITY_PER_THREAD);
+		return new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, stageQueue,
+				createThreadFactory(threadPriority, threadNamePrefix), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * @return Default thread pool size of decode stage of staged pipeline. Decoding is CPU-bound so pool is sized to
+	 * CPU core count.
+	 */
+	public static int getDecodeStageThreadPoolSize() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors());
+	}
+
+	/** @return Default thread pool size of process stage of staged pipeline */
+	public static int getProcessStageThreadPoolSize() {
+		return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	}
+
+	/**
+	 * Creates default implementation of task distributor. Distributor routes tasks to task executors, so single thread
+	 * is used for it.
 	 * 创建默认的task distributor
 	 */
 	public static Executor createTaskDistributor() {
+		//创建单线程线程池
+		return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-d-"));
+	}
+
+	/**
+	 * Creates scheduler for delayed tasks and task deadlines. Scheduler only passes tasks to task executors when delay
+	 * is expired, so single thread is used for it.
+	 * 创建延时任务调度者
+	 */
+	public static ScheduledExecutorService createDelayScheduler() {
+		return new ScheduledThreadPoolExecutor(1, createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-s-"));
+	}
+
+	/**
+	 * Creates default implementation of executor for listener callbacks which are fired not on UI thread
+	 * 创建默认的回调执行者
+	 */
+	public static Executor createCallbackExecutor() {
 		//创建缓存线程池
-		return Executors.newCachedThreadPool(createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-d-"));
+		return Executors.newCachedThreadPool(createThreadFactory(Thread.NORM_PRIORITY, "uil-pool-c-"));
 	}
 
 	/**
@@ -190,6 +268,23 @@ public class DefaultConfigurationFactory {
 		return new DefaultThreadFactory(threadPriority, threadNamePrefix);
 	}
 
+	/**
+	 * Cancels tasks which are dropped from full task queue
+	 * 取消因为任务队列已满而被丢弃的任务
+	 */
+	private static class DroppedTaskCanceller implements LIFOLinkedBlockingDeque.DropListener<Runnable> {
+		@Override
+		public void onDropped(Runnable task) {
+			if (task instanceof LoadAndDisplayImageTask) {
+				((LoadAndDisplayImageTask) task).onDroppedFromQueue();
+			} else if (task instanceof ProcessAndDisplayImageTask) {
+				((ProcessAndDisplayImageTask) task).onDroppedFromQueue();
+			} else if (task instanceof PrefetchTask) {
+				((PrefetchTask) task).onDroppedFromQueue();
+			}
+		}
+	}
+
 	/**
 	 * 默认的线程工厂
 	 */
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
+import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
+import com.nostra13.universalimageloader.utils.IoUtils;
+import com.nostra13.universalimageloader.utils.L;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 下载图片到本地文件系统缓存，并且按照配置的尺寸进行缩放保存
+ * Downloads images into disk cache and resizes cached image files (if maximum size of images in disk cache is set in
+ * configuration). Is shared by display and prefetch tasks.
+ *
+ * @see LoadAndDisplayImageTask
+ * @see PrefetchTask
+ */
+final class DiskCacheWriter {
+
+	private static final String LOG_RESIZE_CACHED_IMAGE_FILE = "Resize image in disk cache [%s]";
+	private static final String LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK = "Process image before cache on disk [%s]";
+
+	private static final String ERROR_NO_IMAGE_STREAM = "No stream for image [%s]";
+	private static final String ERROR_PROCESSOR_FOR_DISK_CACHE_NULL = "Bitmap processor for disk cache returned null [%s]";
+
+	private final ImageLoaderEngine engine;
+	private final ImageLoaderConfiguration configuration;
+
+	DiskCacheWriter(ImageLoaderEngine engine) {
+		this.engine = engine;
+		this.configuration = engine.configuration;
+	}
+
+	/**
+	 * 下载图片并且保存到本地文件系统缓存，需要时进行缩放
+	 * Downloads image into disk cache and resizes cached image file if maximum size of images in disk cache is set.
+	 *
+	 * @param uri          Image URI
+	 * @param options      Display options (extra for downloader is taken from them)
+	 * @param copyListener Listener of download progress, it can interrupt download
+	 * @return <b>true</b> - if image was downloaded successfully; <b>false</b> - otherwise (i.e. image couldn't be
+	 * written into disk cache)
+	 * @throws IOException if download failed
+	 */
+	boolean cacheImageOnDisk(String uri, DisplayImageOptions options, IoUtils.CopyListener copyListener)
+			throws IOException {
+		boolean loaded = downloadImage(uri, options, copyListener);
+		if (loaded) {
+			int width = configuration.maxImageWidthForDiskCache;
+			int height = configuration.maxImageHeightForDiskCache;
+			if (width > 0 || height > 0) {
+				L.d(LOG_RESIZE_CACHED_IMAGE_FILE, uri);
+				try {
+					resizeAndSaveImage(uri, options, width, height); // TODO : process boolean result
+				} catch (IOException e) {
+					L.e(e); // Image stays cached in original size
+				}
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * 图片通过网络下载,并且下载成功之后 进行本地文件系统缓存
+	 * Downloads image and saves it into disk cache. Statistics of network downloads are passed to engine (they're used
+	 * for adaptive thread pool size). Cancelled downloads are skipped.<br />
+	 * Only failure of download is thrown, failure of writing into disk cache (e.g. disk is full) is logged and
+	 * <b>false</b> is returned, then image can be decoded from original URI.
+	 *
+	 * @return <b>true</b> - if image was downloaded and cached successfully; <b>false</b> - otherwise
+	 */
+	private boolean downloadImage(String uri, DisplayImageOptions options, IoUtils.CopyListener copyListener)
+			throws IOException {
+		Scheme scheme = Scheme.ofUri(uri);
+		boolean fromNetwork = scheme == Scheme.HTTP || scheme == Scheme.HTTPS;
+		long startTime = System.currentTimeMillis();
+		InputStream is;
+		try {
+			is = engine.getDownloader().getStream(uri, options.getExtraForDownloader());
+		} catch (IOException e) {
+			if (fromNetwork) engine.onNetworkDownloadFinished(0, System.currentTimeMillis() - startTime, false);
+			throw e;
+		}
+		long latency = System.currentTimeMillis() - startTime;
+		if (is == null) {
+			L.e(ERROR_NO_IMAGE_STREAM, uri);
+			if (fromNetwork) engine.onNetworkDownloadFinished(0, latency, false);
+			return false;
+		}
+		DownloadStream downloadStream = new DownloadStream(is);
+		ByteCounter counter = new ByteCounter(copyListener);
+		boolean saved;
+		try {
+			//进行图片资源缓存到本地文件系统中
+			saved = configuration.diskCache.save(uri, downloadStream, counter);
+		} catch (IOException e) {
+			if (downloadStream.readError == null) {
+				// 写入本地缓存失败，不是下载失败
+				L.e(e);
+				return false;
+			}
+			if (fromNetwork) engine.onNetworkDownloadFinished(counter.bytes, latency, false);
+			throw downloadStream.readError;
+		} finally {
+			IoUtils.closeSilently(downloadStream);
+		}
+		if (fromNetwork && saved) {
+			engine.onNetworkDownloadFinished(counter.bytes, latency, true);
+		}
+		return saved;
+	}
+
+	/**
+	 * Decodes image file into Bitmap, resize it and save it back
+	 * 解码图片 进行图片尺寸修改，然后保存
+	 */
+	private boolean resizeAndSaveImage(String uri, DisplayImageOptions options, int maxWidth, int maxHeight)
+			throws IOException {
+		// Decode image file, compress and re-save it
+		boolean saved = false;
+		File targetFile = configuration.diskCache.get(uri);
+		if (targetFile != null && targetFile.exists()) {
+			ImageSize targetImageSize = new ImageSize(maxWidth, maxHeight);
+			DisplayImageOptions specialOptions = new DisplayImageOptions.Builder().cloneFrom(options)
+					.imageScaleType(ImageScaleType.IN_SAMPLE_INT).build();
+			ImageDecodingInfo decodingInfo = new ImageDecodingInfo(uri, Scheme.FILE.wrap(targetFile.getAbsolutePath()),
+					uri, targetImageSize, ViewScaleType.FIT_INSIDE, engine.getDownloader(), specialOptions);
+			Bitmap bmp = configuration.decoder.decode(decodingInfo);
+			if (bmp != null && configuration.processorForDiskCache != null) {
+				L.d(LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK, uri);
+				bmp = configuration.processorForDiskCache.process(bmp);
+				if (bmp == null) {
+					L.e(ERROR_PROCESSOR_FOR_DISK_CACHE_NULL, uri);
+				}
+			}
+			if (bmp != null) {
+				//图片重新保存本地文件系统
+				saved = configuration.diskCache.save(uri, bmp);
+				bmp.recycle();
+			}
+		}
+		return saved;
+	}
+
+	/** Remembers failure of reading of image stream, so failed download is distinguished from failed disk write */
+	private static final class DownloadStream extends FilterInputStream {
+
+		IOException readError;
+
+		DownloadStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return super.read();
+			} catch (IOException e) {
+				readError = e;
+				throw e;
+			}
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int count) throws IOException {
+			try {
+				return super.read(buffer, offset, count);
+			} catch (IOException e) {
+				readError = e;
+				throw e;
+			}
+		}
+	}
+
+	/** Remembers number of copied bytes and delegates progress to wrapped listener */
+	private static final class ByteCounter implements IoUtils.CopyListener {
+
+		private final IoUtils.CopyListener listener;
+		int bytes;
+
+		ByteCounter(IoUtils.CopyListener listener) {
+			this.listener = listener;
+		}
+
+		@Override
+		public boolean onBytesCopied(int current, int total) {
+			bytes = current;
+			return listener.onBytesCopied(current, total);
+		}
+	}
+}
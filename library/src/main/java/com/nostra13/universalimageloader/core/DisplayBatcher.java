@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+
+/**
+ * 按帧批量分发显示任务
+ * Gathers display tasks (and other callbacks) posted to one {@link Looper} and runs them in a single message not more
+ * often than once per frame interval. Tasks are run in order they were posted, so callbacks for every view keep their
+ * order.
+ *
+ * @see ImageLoaderConfiguration.Builder#displayBatchInterval(int)
+ */
+final class DisplayBatcher implements Runnable {
+
+	private final Handler handler;
+	private final long frameInterval;
+
+	private final Object lock = new Object();
+	/*等待下一帧执行的任务*/
+	private ArrayList<Runnable> pendingTasks = new ArrayList<Runnable>();
+	/*空闲的任务列表，与pendingTasks交替使用*/
+	private ArrayList<Runnable> spareTasks = new ArrayList<Runnable>();
+	private boolean scheduled;
+	private long lastRunTime;
+
+	DisplayBatcher(Looper looper, long frameInterval) {
+		this.handler = new Handler(looper);
+		this.frameInterval = frameInterval;
+	}
+
+	/**
+	 * Adds task to batch. Batch is posted to looper if it isn't posted yet.
+	 *
+	 * @return <b>true</b> - if task will be run; <b>false</b> - if batch can't be posted (looper is exiting)
+	 */
+	boolean post(Runnable task) {
+		synchronized (lock) {
+			pendingTasks.add(task);
+			if (!scheduled) {
+				long delay = lastRunTime + frameInterval - SystemClock.uptimeMillis();
+				scheduled = delay > 0 ? handler.postDelayed(this, delay) : handler.post(this);
+				if (!scheduled) {
+					// 批次未安排时队列中只有当前任务
+					pendingTasks.clear();
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	@Override
+	public void run() {
+		ArrayList<Runnable> tasks;
+		synchronized (lock) {
+			tasks = pendingTasks;
+			pendingTasks = spareTasks;
+			spareTasks = null;
+			scheduled = false;
+			lastRunTime = SystemClock.uptimeMillis();
+		}
+		try {
+			for (int i = 0, size = tasks.size(); i < size; i++) {
+				tasks.get(i).run();
+			}
+		} finally {
+			tasks.clear();
+			synchronized (lock) {
+				spareTasks = tasks;
+			}
+		}
+	}
+}
@@ -25,6 +25,11 @@ import com.nostra13.universalimageloader.utils.L;
 /**
  * 图片显示任务线程，该必须在UI线程取消
  * Displays bitmap in {@link com.nostra13.universalimageloader.core.imageaware.ImageAware}. Must be called on UI thread.
+ * <br />
+ * Task objects are pooled: task is {@linkplain #obtain(Bitmap, ImageLoadingInfo, ImageLoaderEngine, LoadedFrom)
+ * obtained} from pool and returns to pool after it was run, so task must be run only once and mustn't be referenced
+ * after that. Task which won't be run (e.g. it can't be posted to its looper) must be {@linkplain #discard()
+ * discarded} instead, otherwise its bitmap stays retained.
  *
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see ImageLoadingListener
@@ -36,40 +41,96 @@ final class DisplayBitmapTask implements Runnable {
 	private static final String LOG_DISPLAY_IMAGE_IN_IMAGEAWARE = "Display image in ImageAware (loaded from %1$s) [%2$s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_REUSED = "ImageAware is reused for another image. Task is cancelled. [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED = "ImageAware was collected by GC. Task is cancelled. [%s]";
+	private static final int MAX_POOL_SIZE = 32;
+
+	private static final Object poolSync = new Object();
+	/*回收的任务对象链表*/
+	private static DisplayBitmapTask pool;
+	private static int poolSize;
+
 	/*下载成功的图片bitmap*/
-	private final Bitmap bitmap;
+	private Bitmap bitmap;
 	/*图片的URL地址*/
-	private final String imageUri;
+	private String imageUri;
 	/*显示图片的控件，ImageAware对象采用iamgeView包装*/
-	private final ImageAware imageAware;
+	private ImageAware imageAware;
 	/*缓存key*/
-	private final String memoryCacheKey;
+	private String memoryCacheKey;
 	/*图片显示器*/
-	private final BitmapDisplayer displayer;
+	private BitmapDisplayer displayer;
 	/*图片加载监听器*/
-	private final ImageLoadingListener listener;
+	private ImageLoadingListener listener;
 	/*图片加载引擎*/
-	private final ImageLoaderEngine engine;
+	private ImageLoaderEngine engine;
 	/*图片来源标志*/
-	private final LoadedFrom loadedFrom;
+	private LoadedFrom loadedFrom;
+	/*对象池中的下一个对象*/
+	private DisplayBitmapTask next;
+
+	private DisplayBitmapTask() {
+	}
 
 	/**
-	 * 图片显示任务  封装了图片加载显示相关信息
+	 * 从对象池中获取图片显示任务  封装了图片加载显示相关信息
+	 * Returns display task from pool (or creates new one if pool is empty)
+	 *
 	 * @param bitmap                下载成功的图片
 	 * @param imageLoadingInfo      图片加载相关信息
 	 * @param engine                图片加载引擎
 	 * @param loadedFrom            图片加载来源
 	 */
-	public DisplayBitmapTask(Bitmap bitmap, ImageLoadingInfo imageLoadingInfo, ImageLoaderEngine engine,
+	static DisplayBitmapTask obtain(Bitmap bitmap, ImageLoadingInfo imageLoadingInfo, ImageLoaderEngine engine,
 			LoadedFrom loadedFrom) {
-		this.bitmap = bitmap;
-		imageUri = imageLoadingInfo.uri;
-		imageAware = imageLoadingInfo.imageAware;
-		memoryCacheKey = imageLoadingInfo.memoryCacheKey;
-		displayer = imageLoadingInfo.options.getDisplayer();
-		listener = imageLoadingInfo.listener;
-		this.engine = engine;
-		this.loadedFrom = loadedFrom;
+		DisplayBitmapTask task = null;
+		synchronized (poolSync) {
+			if (pool != null) {
+				task = pool;
+				pool = task.next;
+				task.next = null;
+				poolSize--;
+			}
+		}
+		if (task == null) {
+			task = new DisplayBitmapTask();
+		}
+		task.bitmap = bitmap;
+		task.imageUri = imageLoadingInfo.uri;
+		task.imageAware = imageLoadingInfo.imageAware;
+		task.memoryCacheKey = imageLoadingInfo.memoryCacheKey;
+		task.displayer = imageLoadingInfo.options.getDisplayer();
+		task.listener = imageLoadingInfo.listener;
+		task.engine = engine;
+		task.loadedFrom = loadedFrom;
+		engine.retainBitmap(bitmap); // bitmap mustn't be reused before it's displayed
+		return task;
+	}
+
+	/** Clears references of task and returns it to pool */
+	private void recycle() {
+		bitmap = null;
+		imageUri = null;
+		imageAware = null;
+		memoryCacheKey = null;
+		displayer = null;
+		listener = null;
+		engine = null;
+		loadedFrom = null;
+		synchronized (poolSync) {
+			if (poolSize < MAX_POOL_SIZE) {
+				next = pool;
+				pool = this;
+				poolSize++;
+			}
+		}
+	}
+
+	/**
+	 * 丢弃不会被执行的任务，释放图片
+	 * Releases bitmap of task which will never be run and returns task to pool
+	 */
+	void discard() {
+		engine.releaseBitmap(bitmap);
+		recycle();
 	}
 
 	/**
@@ -77,6 +138,15 @@ final class DisplayBitmapTask implements Runnable {
 	 */
 	@Override
 	public void run() {
+		try {
+			display();
+		} finally {
+			engine.releaseBitmap(bitmap);
+			recycle();
+		}
+	}
+
+	private void display() {
 		//判断当前imageAware是否被回收
 		if (imageAware.isCollected()) {
 			L.d(LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED, memoryCacheKey);
@@ -91,6 +161,7 @@ final class DisplayBitmapTask implements Runnable {
 			L.d(LOG_DISPLAY_IMAGE_IN_IMAGEAWARE, loadedFrom, memoryCacheKey);
 			//显示图片
 			displayer.display(bitmap, imageAware, loadedFrom);
+			engine.onBitmapDisplayed(imageAware, memoryCacheKey, bitmap);
 			engine.cancelDisplayTaskFor(imageAware);
 			//图片显示完成回调
 			listener.onLoadingComplete(imageUri, imageAware.getWrappedView(), bitmap);
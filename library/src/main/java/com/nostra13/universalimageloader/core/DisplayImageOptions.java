@@ -94,6 +94,10 @@ public final class DisplayImageOptions {
 	private final BitmapProcessor postProcessor;
 	private final BitmapDisplayer displayer;
 	private final Handler handler;
+	/*任务优先级*/
+	private final int priority;
+	/*任务期限(毫秒)，超时后任务失败*/
+	private final long deadline;
 	//配置是否为同步加载 
 	private final boolean isSyncLoading;
 
@@ -120,6 +124,8 @@ public final class DisplayImageOptions {
 		postProcessor = builder.postProcessor;
 		displayer = builder.displayer;
 		handler = builder.handler;
+		priority = builder.priority;
+		deadline = builder.deadline;
 		isSyncLoading = builder.isSyncLoading;
 	}
 
@@ -159,6 +165,10 @@ public final class DisplayImageOptions {
 		return delayBeforeLoading > 0;
 	}
 
+	public boolean hasDeadline() {
+		return deadline > 0;
+	}
+
 	public Drawable getImageOnLoading(Resources res) {
 		return imageResOnLoading != 0 ? res.getDrawable(imageResOnLoading) : imageOnLoading;
 	}
@@ -219,6 +229,14 @@ public final class DisplayImageOptions {
 		return handler;
 	}
 
+	public int getPriority() {
+		return priority;
+	}
+
+	public long getDeadline() {
+		return deadline;
+	}
+
 	boolean isSyncLoading() {
 		return isSyncLoading;
 	}
@@ -248,6 +266,8 @@ public final class DisplayImageOptions {
 		private BitmapProcessor postProcessor = null;
 		private BitmapDisplayer displayer = DefaultConfigurationFactory.createBitmapDisplayer();
 		private Handler handler = null;
+		private int priority = 0;
+		private long deadline = 0;
 		//是否为同步加载 默认为否
 		private boolean isSyncLoading = false;
 
@@ -486,6 +506,29 @@ public final class DisplayImageOptions {
 			return this;
 		}
 
+		/**
+		 * Sets priority of image loading task. Tasks with higher priority are executed before tasks with lower priority
+		 * if {@link com.nostra13.universalimageloader.core.assist.QueueProcessingType#PRIORITY} tasks processing
+		 * order is set in configuration. Default value - 0.
+		 */
+		public Builder priority(int priority) {
+			this.priority = priority;
+			return this;
+		}
+
+		/**
+		 * Sets deadline of image loading task (in milliseconds since display request). If image isn't loaded before
+		 * deadline then task is dropped from queue or aborted and
+		 * {@link com.nostra13.universalimageloader.core.listener.ImageLoadingListener#onLoadingFailed(String,
+		 * android.view.View, com.nostra13.universalimageloader.core.assist.FailReason) onLoadingFailed} is fired with
+		 * {@link com.nostra13.universalimageloader.core.assist.FailReason.FailType#TIMEOUT TIMEOUT} reason. Late
+		 * result isn't displayed. Default - no deadline.
+		 */
+		public Builder deadline(long deadlineInMillis) {
+			this.deadline = deadlineInMillis;
+			return this;
+		}
+
 		/** Sets all options equal to incoming options */
 		public Builder cloneFrom(DisplayImageOptions options) {
 			imageResOnLoading = options.imageResOnLoading;
@@ -506,6 +549,8 @@ public final class DisplayImageOptions {
 			postProcessor = options.postProcessor;
 			displayer = options.displayer;
 			handler = options.handler;
+			priority = options.priority;
+			deadline = options.deadline;
 			isSyncLoading = options.isSyncLoading;
 			return this;
 		}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 加载失败的图片地址缓存(负缓存)
+ * Bounded cache of image URIs which failed to load. Failure is remembered for TTL which is doubled on every repeated
+ * failure of the same URI (from minimum TTL up to maximum TTL). Successful loading of URI forgets its failures.
+ *
+ * @see ImageLoaderConfiguration.Builder#failedUriCache(int, long, long)
+ */
+final class FailedUriCache {
+
+	private final long minTtl;
+	private final long maxTtl;
+	private final Map<String, Failure> failures;
+
+	FailedUriCache(final int capacity, long minTtl, long maxTtl) {
+		this.minTtl = minTtl;
+		this.maxTtl = maxTtl;
+		failures = new LinkedHashMap<String, Failure>(capacity, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Failure> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/** Remembers failure of URI. TTL of failure grows if URI has already failed before. */
+	synchronized void put(String uri, FailType failType) {
+		Failure failure = failures.get(uri);
+		if (failure == null) {
+			failure = new Failure();
+			failures.put(uri, failure);
+		}
+		long ttl = failure.count < Long.numberOfLeadingZeros(minTtl) - 1 ? minTtl << failure.count : maxTtl;
+		failure.count++;
+		failure.type = failType;
+		failure.expirationTime = System.currentTimeMillis() + Math.min(ttl, maxTtl);
+	}
+
+	/**
+	 * @return Type of the last failure of URI if its TTL isn't expired yet; <b>null</b> - otherwise
+	 */
+	synchronized FailType get(String uri) {
+		Failure failure = failures.get(uri);
+		if (failure == null || System.currentTimeMillis() >= failure.expirationTime) return null;
+		return failure.type;
+	}
+
+	/** Forgets failures of URI (i.e. URI was loaded successfully) */
+	synchronized void remove(String uri) {
+		failures.remove(uri);
+	}
+
+	synchronized void clear() {
+		failures.clear();
+	}
+
+	/** Failure of URI. Expired failures are kept to count repeated failures. */
+	private static final class Failure {
+		FailType type;
+		int count;
+		long expirationTime;
+	}
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按主机限制网络任务并发数，并在主机之间轮询调度
+ * Admits network tasks to task executor with per-host limit of running tasks and total limit of admitted tasks. Tasks
+ * which can't be admitted wait in queue of their host. When slot is released then waiting tasks are admitted
+ * round-robin between hosts, so slow host can't occupy all workers while tasks of fast host wait.<br />
+ * Order of tasks of one host follows {@link QueueProcessingType}.
+ *
+ * @see ImageLoaderConfiguration.Builder#maxConnectionsPerHost(int)
+ */
+final class HostScheduler {
+
+	private final int maxPerHost;
+	private final QueueProcessingType processingType;
+	private final PrioritizedTask.PriorityComparator priorityComparator = new PrioritizedTask.PriorityComparator();
+
+	private final Map<String, HostQueue> hosts = new HashMap<String, HostQueue>();
+	/*有等待任务且未达到并发上限的主机，按轮询顺序排列*/
+	private final LinkedList<HostQueue> readyHosts = new LinkedList<HostQueue>();
+	private int maxActive;
+	private int active;
+
+	HostScheduler(int maxPerHost, int maxActive, QueueProcessingType processingType) {
+		this.maxPerHost = maxPerHost;
+		this.maxActive = maxActive;
+		this.processingType = processingType;
+	}
+
+	/**
+	 * Admits task if limits allow it, otherwise puts task into queue of its host.
+	 *
+	 * @return <b>true</b> - if task is admitted and should be executed; <b>false</b> - if task waits for free slot
+	 */
+	synchronized boolean admit(LoadAndDisplayImageTask task, String host) {
+		HostQueue hostQueue = hosts.get(host);
+		if (hostQueue == null) {
+			hostQueue = new HostQueue();
+			hosts.put(host, hostQueue);
+		}
+		// Task doesn't overtake waiting tasks of other hosts
+		if (readyHosts.isEmpty() && active < maxActive && hostQueue.active < maxPerHost) {
+			hostQueue.active++;
+			active++;
+			return true;
+		}
+		hostQueue.waiting.add(task);
+		if (hostQueue.active < maxPerHost && !hostQueue.ready) {
+			hostQueue.ready = true;
+			readyHosts.add(hostQueue);
+		}
+		return false;
+	}
+
+	/**
+	 * Admits task if limits allow it and tasks of no host wait for slot. Task isn't queued if it can't be admitted.
+	 * Is used for background tasks which shouldn't take slots which display tasks wait for.
+	 *
+	 * @return <b>true</b> - if task is admitted and should be executed; <b>false</b> - otherwise
+	 */
+	synchronized boolean tryAdmit(String host) {
+		if (!readyHosts.isEmpty() || active >= maxActive) return false;
+		HostQueue hostQueue = hosts.get(host);
+		if (hostQueue == null) {
+			hostQueue = new HostQueue();
+			hosts.put(host, hostQueue);
+		} else if (hostQueue.active >= maxPerHost) {
+			return false;
+		}
+		hostQueue.active++;
+		active++;
+		return true;
+	}
+
+	/**
+	 * Releases slot of host.
+	 *
+	 * @return Tasks which were admitted instead of finished one
+	 */
+	synchronized List<LoadAndDisplayImageTask> release(String host) {
+		HostQueue hostQueue = hosts.get(host);
+		if (hostQueue != null && hostQueue.active > 0) {
+			hostQueue.active--;
+			active--;
+			if (!hostQueue.waiting.isEmpty()) {
+				if (!hostQueue.ready) {
+					hostQueue.ready = true;
+					readyHosts.add(hostQueue);
+				}
+			} else if (hostQueue.active == 0) {
+				hosts.remove(host);
+			}
+		}
+		return admitWaitingTasks();
+	}
+
+	/**
+	 * Changes limit of admitted tasks (e.g. when network thread pool is resized).
+	 *
+	 * @return Tasks which were admitted because of increased limit
+	 */
+	synchronized List<LoadAndDisplayImageTask> setMaxActive(int maxActive) {
+		this.maxActive = maxActive;
+		return admitWaitingTasks();
+	}
+
+	/** @return <b>true</b> - if task was removed from queue of its host; <b>false</b> - if task didn't wait there */
+	synchronized boolean remove(LoadAndDisplayImageTask task, String host) {
+		HostQueue hostQueue = hosts.get(host);
+		if (hostQueue == null || !hostQueue.waiting.remove(task)) return false;
+		if (hostQueue.waiting.isEmpty()) {
+			if (hostQueue.ready) {
+				hostQueue.ready = false;
+				readyHosts.remove(hostQueue);
+			}
+			if (hostQueue.active == 0) {
+				hosts.remove(host);
+			}
+		}
+		return true;
+	}
+
+	/** Forgets all waiting tasks and resets counters of admitted tasks */
+	synchronized void clear() {
+		hosts.clear();
+		readyHosts.clear();
+		active = 0;
+	}
+
+	private List<LoadAndDisplayImageTask> admitWaitingTasks() {
+		List<LoadAndDisplayImageTask> admitted = null;
+		while (active < maxActive && !readyHosts.isEmpty()) {
+			HostQueue hostQueue = readyHosts.removeFirst();
+			LoadAndDisplayImageTask task = hostQueue.poll();
+			hostQueue.active++;
+			active++;
+			if (!hostQueue.waiting.isEmpty() && hostQueue.active < maxPerHost) {
+				readyHosts.addLast(hostQueue); // next host gets the next slot
+			} else {
+				hostQueue.ready = false;
+			}
+			if (admitted == null) {
+				admitted = new ArrayList<LoadAndDisplayImageTask>();
+			}
+			admitted.add(task);
+		}
+		return admitted;
+	}
+
+	/** Waiting tasks and number of running tasks of one host */
+	private final class HostQueue {
+		final LinkedList<LoadAndDisplayImageTask> waiting = new LinkedList<LoadAndDisplayImageTask>();
+		int active;
+		boolean ready;
+
+		LoadAndDisplayImageTask poll() {
+			switch (processingType) {
+				case LIFO:
+					return waiting.removeLast();
+				case PRIORITY:
+					Iterator<LoadAndDisplayImageTask> it = waiting.iterator();
+					LoadAndDisplayImageTask first = it.next();
+					while (it.hasNext()) {
+						LoadAndDisplayImageTask task = it.next();
+						if (priorityComparator.compare(task, first) < 0) {
+							first = task;
+						}
+					}
+					waiting.remove(first);
+					return first;
+				case FIFO:
+				default:
+					return waiting.removeFirst();
+			}
+		}
+	}
+}
@@ -25,9 +25,12 @@ import android.widget.ImageView;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.assist.PrefetchLevel;
 import com.nostra13.universalimageloader.core.assist.ViewScaleType;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.imageaware.ImageViewAware;
@@ -39,6 +42,8 @@ import com.nostra13.universalimageloader.utils.ImageSizeUtils;
 import com.nostra13.universalimageloader.utils.L;
 import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
 
+import java.util.Collection;
+
 /**
  * Image加载和显示的单例类
  * Singletone for image loading and displaying at {@link ImageView ImageViews}<br />
@@ -54,6 +59,7 @@ public class ImageLoader {
 	static final String LOG_INIT_CONFIG = "Initialize ImageLoader with configuration";
 	static final String LOG_DESTROY = "Destroy ImageLoader";
 	static final String LOG_LOAD_IMAGE_FROM_MEMORY_CACHE = "Load image from memory cache [%s]";
+	static final String LOG_IMAGE_URI_FAILED_RECENTLY = "Image URI failed recently (%1$s), loading is skipped [%2$s]";
 
 	private static final String WARNING_RE_INIT_CONFIG = "Try to initialize ImageLoader which had already been initialized before. " + "To re-init ImageLoader with new configuration call ImageLoader.destroy() at first.";
 	private static final String ERROR_WRONG_ARGUMENTS = "Wrong arguments were passed to displayImage() method (ImageView reference must not be null)";
@@ -300,6 +306,7 @@ public class ImageLoader {
 			} else {
 				imageAware.setImageDrawable(null);
 			}
+			engine.onBitmapUnbound(imageAware);
 			//直接加载回调加载成功
 			listener.onLoadingComplete(uri, imageAware.getWrappedView(), null);
 			return;
@@ -315,14 +322,14 @@ public class ImageLoader {
         //开始进行加载图片
 		listener.onLoadingStarted(uri, imageAware.getWrappedView());
 
-		//首先根据key去缓存中获取是否还存在该图片
-		Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
+		//首先根据key去缓存中获取是否还存在该图片（包括当前显示中的图片）
+		Bitmap bmp = engine.getCachedBitmap(memoryCacheKey);
 		if (bmp != null && !bmp.isRecycled()) {
 			//缓存中该图片存在
 			L.d(LOG_LOAD_IMAGE_FROM_MEMORY_CACHE, memoryCacheKey);
 			if (options.shouldPostProcess()) {
 				ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
-						options, listener, progressListener, engine.getLockForUri(uri));
+						options, listener, progressListener);
 				ProcessAndDisplayImageTask displayTask = new ProcessAndDisplayImageTask(engine, bmp, imageLoadingInfo,
 						defineHandler(options));
 				//是否允许同步加载
@@ -334,18 +341,33 @@ public class ImageLoader {
 				}
 			} else {
 				options.getDisplayer().display(bmp, imageAware, LoadedFrom.MEMORY_CACHE);
+				engine.onBitmapDisplayed(imageAware, memoryCacheKey, bmp);
 				listener.onLoadingComplete(uri, imageAware.getWrappedView(), bmp);
 			}
 		} else {
+			//该地址最近加载失败过，直接回调失败，不创建加载任务
+			FailType failType = engine.getFailureOf(uri);
+			if (failType != null) {
+				L.d(LOG_IMAGE_URI_FAILED_RECENTLY, failType, memoryCacheKey);
+				engine.cancelDisplayTaskFor(imageAware);
+				if (options.shouldShowImageOnFail()) {
+					imageAware.setImageDrawable(options.getImageOnFail(configuration.resources));
+					engine.onBitmapUnbound(imageAware);
+				}
+				listener.onLoadingFailed(uri, imageAware.getWrappedView(), new FailReason(failType, null));
+				return;
+			}
 			//缓存中不存在该图片 通过网络加载
 			if (options.shouldShowImageOnLoading()) {
 				imageAware.setImageDrawable(options.getImageOnLoading(configuration.resources));
+				engine.onBitmapUnbound(imageAware);
 			} else if (options.isResetViewBeforeLoading()) {
 				imageAware.setImageDrawable(null);
+				engine.onBitmapUnbound(imageAware);
 			}
             //进行构造图片加载任务相关的所有信息对象
 			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, memoryCacheKey,
-					options, listener, progressListener, engine.getLockForUri(uri));
+					options, listener, progressListener);
 			//分装图片加载和显示任务对象 然后进行开启执行任务
 			LoadAndDisplayImageTask displayTask = new LoadAndDisplayImageTask(engine, imageLoadingInfo,
 					defineHandler(options));
@@ -623,6 +645,60 @@ public class ImageLoader {
 		displayImage(uri, imageAware, options, listener, progressListener);
 	}
 
+	/**
+	 * 批量预加载图片到本地文件系统缓存或者内存缓存中
+	 * Prefetches images in background with the lowest priority: images are downloaded only by idle threads (so display
+	 * tasks are never queued behind prefetching, whatever tasks processing order is set in configuration) and within
+	 * {@linkplain ImageLoaderConfiguration.Builder#maxConnectionsPerHost(int) per-host limit}. Images which are loading
+	 * at this moment are not loaded twice.<br />
+	 * {@link PrefetchLevel#DISK_ONLY DISK_ONLY} level only downloads images into disk cache without decoding.
+	 * {@link PrefetchLevel#MEMORY MEMORY} level also decodes images and caches them in memory.<br />
+	 * Default display image options
+	 * {@linkplain ImageLoaderConfiguration.Builder#defaultDisplayImageOptions(DisplayImageOptions) from
+	 * configuration} are used for downloading and decoding.<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 *
+	 * @param uris       Image URIs (i.e. "http://site.com/image.png", "file:///mnt/sdcard/image.png")
+	 * @param targetSize Minimal size for {@link Bitmap} which will be cached in memory. Is used only for
+	 *                   {@link PrefetchLevel#MEMORY MEMORY} level. If <b>null</b> - maximum image size from
+	 *                   configuration is used.
+	 * @param level      Defines which caches are warmed
+	 * @return Handle for tracking prefetching progress and cancelling prefetching
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public PrefetchHandle prefetch(Collection<String> uris, ImageSize targetSize, PrefetchLevel level) {
+		checkConfiguration();
+		if (uris == null || level == null) {
+			throw new IllegalArgumentException(ERROR_WRONG_ARGUMENTS);
+		}
+		PrefetchHandle handle = new PrefetchHandle(engine, uris.size());
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cloneFrom(configuration.defaultDisplayImageOptions)
+				.cacheInMemory(true)
+				.cacheOnDisk(true)
+				.postProcessor(null)
+				.priority(ImageLoaderEngine.PREFETCH_PRIORITY)
+				.syncLoading(false)
+				.build();
+		if (targetSize == null) {
+			targetSize = configuration.getMaxImageSize();
+		}
+
+		for (String uri : uris) {
+			if (TextUtils.isEmpty(uri)) {
+				handle.onImagePrefetched(false);
+			} else if (level == PrefetchLevel.DISK_ONLY) {
+				PrefetchTask task = new PrefetchTask(engine, uri, options, handle);
+				handle.addTask(task);
+				engine.submit(task);
+			} else {
+				NonViewAware imageAware = new NonViewAware(targetSize, ViewScaleType.CROP);
+				displayImage(uri, imageAware, options, handle.addImageAware(imageAware), null);
+			}
+		}
+		return handle;
+	}
+
 	/**
 	 * 使用同步方式进行加载和解码图片，传入图片的URL地址
 	 * Loads and decodes image synchronously.<br />
@@ -761,6 +837,22 @@ public class ImageLoader {
 	public void clearMemoryCache() {
 		checkConfiguration();
 		configuration.memoryCache.clear();
+		engine.invalidateActiveImages();
+	}
+
+	/**
+	 * 从内存缓存中删除图片地址对应的所有图片（包括当前显示中的图片）
+	 * Removes from memory cache all images for incoming URI (see
+	 * {@link MemoryCacheUtils#removeFromCache(String, MemoryCache)}). Images of URI which are displayed at this moment
+	 * (see {@link ImageLoaderConfiguration.Builder#activeResources(boolean) active images tier}) are invalidated too,
+	 * so they will be loaded again.
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public void removeFromMemoryCache(String imageUri) {
+		checkConfiguration();
+		MemoryCacheUtils.removeFromCache(imageUri, configuration.memoryCache);
+		engine.invalidateActiveImages(imageUri);
 	}
 
 	/**
@@ -807,6 +899,19 @@ public class ImageLoader {
 	public void clearDiskCache() {
 		checkConfiguration();
 		configuration.diskCache.clear();
+		engine.clearDiskCacheIndex();
+	}
+
+	/**
+	 * 清除加载失败的图片地址记录
+	 * Forgets image URIs which failed to load recently, so they will be loaded again on next display request.
+	 *
+	 * @throws IllegalStateException if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see ImageLoaderConfiguration.Builder#failedUriCache(int, long, long)
+	 */
+	public void clearFailedUriCache() {
+		checkConfiguration();
+		engine.clearFailures();
 	}
 
 	/**
@@ -908,6 +1013,20 @@ public class ImageLoader {
 		engine.stop();
 	}
 
+	/**
+	 * 获取流水线阶段队列中等待的任务数量
+	 * Returns number of tasks which wait for execution in queue of incoming pipeline stage. If
+	 * {@linkplain ImageLoaderConfiguration.Builder#stagedPipeline(boolean) staged pipeline} is disabled then
+	 * {@link PipelineStage#DECODE DECODE} and {@link PipelineStage#PROCESS PROCESS} stages are measured by
+	 * executor for cached images.
+	 *
+	 * @return Queue depth or <b>-1</b> if it can't be defined (e.g. for custom executor)
+	 */
+	public int getQueueDepth(PipelineStage stage) {
+		checkConfiguration();
+		return engine.getQueueDepth(stage);
+	}
+
 	/**
 	 * 停止并且清除当前配置
 	 * {@linkplain #stop() Stops ImageLoader} and clears current configuration. <br />
@@ -20,13 +20,17 @@ import android.content.res.Resources;
 import android.util.DisplayMetrics;
 import com.nostra13.universalimageloader.cache.disc.DiskCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
 import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.UriIndexedMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.decode.ImageDecoder;
+import com.nostra13.universalimageloader.core.download.CircuitBreakerImageDownloader;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.download.RetryPolicy;
 import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 import com.nostra13.universalimageloader.utils.L;
 import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
@@ -75,6 +79,30 @@ public final class ImageLoaderConfiguration {
 	final int threadPriority;
 	/*队列中处理算法类型*/
 	final QueueProcessingType tasksProcessingType;
+	/*LIFO任务队列的容量，0表示不限制*/
+	final int taskQueueCapacity;
+	/*是否采用分阶段流水线(网络下载，解码，后处理)*/
+	final boolean stagedPipeline;
+	/*图片加载进度回调的最小时间间隔(毫秒)以及最小百分比步长*/
+	final int progressUpdateInterval;
+	final int progressUpdateStep;
+	/*主线程批量显示的帧间隔(毫秒)，0表示不批量显示*/
+	final int displayBatchInterval;
+	/*每个主机的网络任务并发上限，0表示不限制*/
+	final int maxConnectionsPerHost;
+	/*加载失败地址缓存的容量以及失败记录的最小/最大有效时间，容量为0表示不缓存*/
+	final int failedUriCacheSize;
+	final long failedUriMinTtl;
+	final long failedUriMaxTtl;
+	/*图片下载失败的重试策略，null表示不重试*/
+	final RetryPolicy retryPolicy;
+	/*可复用bitmap对象池，null表示不复用*/
+	final BitmapPool bitmapPool;
+	/*是否将显示中的图片移出内存缓存，单独记录*/
+	final boolean activeResources;
+	/*自适应网络下载线程数量的上下限，0表示不采用自适应*/
+	final int minThreadPoolSize;
+	final int maxThreadPoolSize;
     /*内存缓存对象*/
 	final MemoryCache memoryCache;
 	/*本地文件系统缓存对象*/
@@ -105,10 +133,29 @@ public final class ImageLoaderConfiguration {
 		threadPoolSize = builder.threadPoolSize;
 		threadPriority = builder.threadPriority;
 		tasksProcessingType = builder.tasksProcessingType;
+		taskQueueCapacity = builder.taskQueueCapacity;
+		stagedPipeline = builder.stagedPipeline;
+		progressUpdateInterval = builder.progressUpdateInterval;
+		progressUpdateStep = builder.progressUpdateStep;
+		displayBatchInterval = builder.displayBatchInterval;
+		maxConnectionsPerHost = builder.maxConnectionsPerHost;
+		failedUriCacheSize = builder.failedUriCacheSize;
+		failedUriMinTtl = builder.failedUriMinTtl;
+		failedUriMaxTtl = builder.failedUriMaxTtl;
+		retryPolicy = builder.retryPolicy;
+		bitmapPool = builder.bitmapPool;
+		activeResources = builder.activeResources;
+		minThreadPoolSize = builder.minThreadPoolSize;
+		maxThreadPoolSize = builder.maxThreadPoolSize;
 		diskCache = builder.diskCache;
 		memoryCache = builder.memoryCache;
 		defaultDisplayImageOptions = builder.defaultDisplayImageOptions;
-		downloader = builder.downloader;
+		if (builder.circuitBreakerFailureThreshold > 0) {
+			downloader = new CircuitBreakerImageDownloader(builder.downloader, builder.circuitBreakerFailureThreshold,
+					builder.circuitBreakerOpenTime);
+		} else {
+			downloader = builder.downloader;
+		}
 		decoder = builder.decoder;
 
 		customExecutor = builder.customExecutor;
@@ -213,7 +260,24 @@ public final class ImageLoaderConfiguration {
 		private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
 		private int threadPriority = DEFAULT_THREAD_PRIORITY;
 		private boolean denyCacheImageMultipleSizesInMemory = false;
+		private boolean indexMemoryCacheByUri = false;
 		private QueueProcessingType tasksProcessingType = DEFAULT_TASK_PROCESSING_TYPE;
+		private int taskQueueCapacity = 0;
+		private boolean stagedPipeline = false;
+		private int progressUpdateInterval = 0;
+		private int progressUpdateStep = 0;
+		private int displayBatchInterval = 0;
+		private int maxConnectionsPerHost = 0;
+		private int failedUriCacheSize = 0;
+		private long failedUriMinTtl = 0;
+		private long failedUriMaxTtl = 0;
+		private RetryPolicy retryPolicy = null;
+		private BitmapPool bitmapPool = null;
+		private boolean activeResources = false;
+		private int circuitBreakerFailureThreshold = 0;
+		private long circuitBreakerOpenTime = 0;
+		private int minThreadPoolSize = 0;
+		private int maxThreadPoolSize = 0;
 
 		private int memoryCacheSize = 0;
 		private long diskCacheSize = 0;
@@ -380,6 +444,19 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * 设置内存缓存按图片地址索引缓存key
+		 * Memory cache will keep index from image URI to keys of its cached sizes. So search and removing of all cached
+		 * sizes of image (see {@link MemoryCacheUtils}) and removing of previous cached size of image (see
+		 * {@link #denyCacheImageMultipleSizesInMemory()}) don't scan all keys of memory cache.
+		 *
+		 * @see UriIndexedMemoryCache
+		 */
+		public Builder indexMemoryCacheByUri() {
+			this.indexMemoryCacheByUri = true;
+			return this;
+		}
+
 		/**
 		 * 设置加载和显示图片任务的队列任务处理算法类型
 		 * Sets type of queue processing for tasks for loading and displaying images.<br />
@@ -394,6 +471,210 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * 设置图片加载进度回调的最小时间间隔
+		 * Sets minimum interval (in milliseconds) between
+		 * {@linkplain com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener progress events} of
+		 * one image. Progress events are coalesced anyway: one task has at most one pending progress message which
+		 * carries the latest values. The final progress event is always fired.<br />
+		 * Default value - 0 (no minimum interval)
+		 */
+		public Builder progressUpdateInterval(int intervalInMillis) {
+			this.progressUpdateInterval = intervalInMillis;
+			return this;
+		}
+
+		/**
+		 * 设置图片加载进度回调的最小百分比步长
+		 * Sets minimum progress step (in percents) between
+		 * {@linkplain com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListener progress events} of
+		 * one image. The final progress event is always fired.<br />
+		 * Default value - 0 (no minimum step)
+		 */
+		public Builder progressUpdateStep(int stepInPercents) {
+			this.progressUpdateStep = stepInPercents;
+			return this;
+		}
+
+		/**
+		 * 设置每个主机的网络下载并发上限
+		 * Sets maximum number of images which are downloaded from one host at the same time. Network tasks over the limit
+		 * wait in queue of their host without occupying threads; free threads are given to hosts in round-robin order. So
+		 * slow host can't take every thread while images from fast host wait. Host is taken from image URI (see
+		 * {@link com.nostra13.universalimageloader.core.download.BaseImageDownloader#getHost(String)}).<br />
+		 * Default value - 0 (no per-host limit)
+		 */
+		public Builder maxConnectionsPerHost(int maxConnectionsPerHost) {
+			if (maxConnectionsPerHost <= 0) {
+				throw new IllegalArgumentException("maxConnectionsPerHost must be a positive number");
+			}
+			this.maxConnectionsPerHost = maxConnectionsPerHost;
+			return this;
+		}
+
+		/**
+		 * 设置加载失败地址缓存
+		 * Enables cache of image URIs which failed to load because of I/O error (e.g. 404 or connection timeout) or
+		 * decoding error. Display requests for such URI fail at once with remembered
+		 * {@linkplain com.nostra13.universalimageloader.core.assist.FailReason.FailType fail type} while failure isn't
+		 * expired, so no task is created and no request is sent. Failure is remembered for <b>minTtl</b> first time,
+		 * TTL is doubled on every repeated failure of the same URI up to <b>maxTtl</b>.<br />
+		 * Default value - disabled
+		 *
+		 * @param capacity Maximum number of remembered URIs
+		 * @param minTtl   TTL (in milliseconds) of the first failure of URI
+		 * @param maxTtl   Maximum TTL (in milliseconds) of failure of URI
+		 */
+		public Builder failedUriCache(int capacity, long minTtl, long maxTtl) {
+			if (capacity <= 0) throw new IllegalArgumentException("capacity must be a positive number");
+			if (minTtl <= 0 || maxTtl < minTtl) {
+				throw new IllegalArgumentException("minTtl must be a positive number and maxTtl mustn't be less than minTtl");
+			}
+			this.failedUriCacheSize = capacity;
+			this.failedUriMinTtl = minTtl;
+			this.failedUriMaxTtl = maxTtl;
+			return this;
+		}
+
+		/**
+		 * 设置可复用bitmap对象池
+		 * Sets pool of bitmaps for reusing (Android 3.0+). Decoder reuses pooled bitmaps for decoding of images of the same
+		 * size (see {@link android.graphics.BitmapFactory.Options#inBitmap}) and for exact scaling/rotation. Bitmaps
+		 * evicted from {@link com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache} go into the pool if
+		 * they aren't displayed at this moment.<br />
+		 * <b>NOTE:</b> Bitmaps displayed by ImageLoader can be reused after they were replaced in ImageAware and evicted
+		 * from memory cache, so application code mustn't hold them.<br />
+		 * Bitmap pool turns on {@linkplain #activeResources(boolean) active images tier}.<br />
+		 * Default value - null (bitmaps aren't reused)
+		 *
+		 * @see com.nostra13.universalimageloader.cache.memory.impl.LruBitmapPool
+		 */
+		public Builder bitmapPool(BitmapPool bitmapPool) {
+			this.bitmapPool = bitmapPool;
+			return this;
+		}
+
+		/**
+		 * 设置是否将显示中的图片移出内存缓存
+		 * Sets whether images displayed in views should be kept in separate tier of "active" images. Image displayed
+		 * by ImageLoader is moved from memory cache into this tier (and referenced weakly there) and returns to memory
+		 * cache when no view displays it anymore (view displays another image or placeholder or it's collected by GC).
+		 * So only off-screen images take memory cache size and memory cache can be sized for them. Active images are
+		 * found by {@link ImageLoader#displayImage(String, android.widget.ImageView) displayImage(...)} as before but
+		 * {@link ImageLoader#getMemoryCache()} doesn't contain them (use
+		 * {@link ImageLoader#removeFromMemoryCache(String)} to remove image of URI from both).<br />
+		 * Default value - false
+		 */
+		public Builder activeResources(boolean activeResources) {
+			this.activeResources = activeResources;
+			return this;
+		}
+
+		/**
+		 * 设置图片下载失败的重试策略
+		 * Sets policy of retries of failed image downloads. Task which should retry doesn't sleep on worker thread, it's
+		 * re-submitted after delay defined by policy. Synchronous loadings aren't retried.<br />
+		 * Default value - null (failed downloads aren't retried)
+		 *
+		 * @see com.nostra13.universalimageloader.core.download.ExponentialBackoffRetryPolicy
+		 */
+		public Builder retryPolicy(RetryPolicy retryPolicy) {
+			this.retryPolicy = retryPolicy;
+			return this;
+		}
+
+		/**
+		 * 设置按主机熔断
+		 * Wraps image downloader with {@link CircuitBreakerImageDownloader}: after <b>failureThreshold</b> consecutive
+		 * failed downloads from one host all downloads from this host fail at once during <b>openTime</b>.<br />
+		 * Default value - disabled
+		 *
+		 * @param failureThreshold Number of consecutive failures which opens circuit for host
+		 * @param openTime         Time (in milliseconds) while circuit stays open
+		 */
+		public Builder circuitBreaker(int failureThreshold, long openTime) {
+			if (failureThreshold <= 0 || openTime <= 0) {
+				throw new IllegalArgumentException("failureThreshold and openTime must be positive numbers");
+			}
+			this.circuitBreakerFailureThreshold = failureThreshold;
+			this.circuitBreakerOpenTime = openTime;
+			return this;
+		}
+
+		/**
+		 * 设置主线程批量显示的帧间隔
+		 * Enables batched delivery of displays: completed displays (and other callbacks of display tasks) are gathered
+		 * and run in a single main thread message not more often than once per passed interval. Callbacks keep their
+		 * order for every view. It reduces message churn and layout passes when many images are loaded at once (e.g.
+		 * grid of cached thumbnails). Reasonable value is frame interval - 16 ms.<br />
+		 * Default value - 0 (every display is posted by its own message)
+		 */
+		public Builder displayBatchInterval(int frameIntervalInMillis) {
+			if (frameIntervalInMillis < 0) throw new IllegalArgumentException("displayBatchInterval must be non-negative");
+			this.displayBatchInterval = frameIntervalInMillis;
+			return this;
+		}
+
+		/**
+		 * 设置LIFO任务队列的容量
+		 * Sets capacity of task queue for {@link QueueProcessingType#LIFO LIFO} tasks processing order. If queue is full
+		 * then the oldest (deepest) task is dropped and
+		 * {@link com.nostra13.universalimageloader.core.listener.ImageLoadingListener#onLoadingCancelled(String,
+		 * android.view.View) onLoadingCancelled} is fired for it. So memory for queued tasks is bounded and executed
+		 * tasks are relevant to what is on screen.<br />
+		 * Default value - unbounded queue
+		 */
+		public Builder taskQueueCapacity(int taskQueueCapacity) {
+			if (taskQueueCapacity <= 0) throw new IllegalArgumentException("taskQueueCapacity must be a positive number");
+			if (taskExecutor != null || taskExecutorForCachedImages != null) {
+				L.w(WARNING_OVERLAP_EXECUTOR);
+			}
+
+			this.taskQueueCapacity = taskQueueCapacity;
+			return this;
+		}
+
+		/**
+		 * 设置是否采用分阶段流水线
+		 * Enables or disables staged pipeline. In staged pipeline image downloading is executed by
+		 * {@linkplain #taskExecutor(java.util.concurrent.Executor) task executor}, decoding of downloaded image is
+		 * handed off to decode stage (sized to CPU core count) and post-processing is handed off to process stage.
+		 * So slow network doesn't block threads which could decode images. Stages are joined by bounded queues.<br />
+		 * Synchronous loading and loading of images which aren't cached on disk aren't staged.<br />
+		 * Default value - <b>false</b>
+		 *
+		 * @see ImageLoader#getQueueDepth(com.nostra13.universalimageloader.core.assist.PipelineStage)
+		 */
+		public Builder stagedPipeline(boolean stagedPipeline) {
+			this.stagedPipeline = stagedPipeline;
+			return this;
+		}
+
+		/**
+		 * 设置自适应网络下载线程数量
+		 * Enables adaptive thread pool size for {@linkplain #taskExecutor(Executor) task executor} (which downloads
+		 * images from network). Pool size starts from {@linkplain #threadPoolSize(int) thread pool size} and is
+		 * increased by one while aggregate download throughput grows. It is halved if download latency or failures
+		 * rise.<br />
+		 * Adaptive size isn't applied to custom task executor.
+		 *
+		 * @param minThreadPoolSize Minimum thread pool size (must be positive)
+		 * @param maxThreadPoolSize Maximum thread pool size (must not be less than <b>minThreadPoolSize</b>)
+		 */
+		public Builder adaptiveThreadPoolSize(int minThreadPoolSize, int maxThreadPoolSize) {
+			if (minThreadPoolSize <= 0) throw new IllegalArgumentException("minThreadPoolSize must be a positive number");
+			if (maxThreadPoolSize < minThreadPoolSize) {
+				throw new IllegalArgumentException("maxThreadPoolSize must not be less than minThreadPoolSize");
+			}
+			if (taskExecutor != null) {
+				L.w(WARNING_OVERLAP_EXECUTOR);
+			}
+
+			this.minThreadPoolSize = minThreadPoolSize;
+			this.maxThreadPoolSize = maxThreadPoolSize;
+			return this;
+		}
+
 		/**
 		 * 设置内存缓存器最大容量
 		 * Sets maximum memory cache size for {@link android.graphics.Bitmap bitmaps} (in bytes).<br />
@@ -631,14 +912,18 @@ public final class ImageLoaderConfiguration {
 		 */
 		private void initEmptyFieldsWithDefaultValues() {
 			if (taskExecutor == null) {
+				int initialPoolSize = threadPoolSize;
+				if (maxThreadPoolSize > 0) {
+					initialPoolSize = Math.max(minThreadPoolSize, Math.min(maxThreadPoolSize, threadPoolSize));
+				}
 				taskExecutor = DefaultConfigurationFactory
-						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType);
+						.createExecutor(initialPoolSize, threadPriority, tasksProcessingType, taskQueueCapacity);
 			} else {
 				customExecutor = true;
 			}
 			if (taskExecutorForCachedImages == null) {
 				taskExecutorForCachedImages = DefaultConfigurationFactory
-						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType);
+						.createExecutor(threadPoolSize, threadPriority, tasksProcessingType, taskQueueCapacity);
 			} else {
 				customExecutorForCachedImages = true;
 			}
@@ -652,7 +937,9 @@ public final class ImageLoaderConfiguration {
 			if (memoryCache == null) {
 				memoryCache = DefaultConfigurationFactory.createMemoryCache(context, memoryCacheSize);
 			}
-			if (denyCacheImageMultipleSizesInMemory) {
+			if (indexMemoryCacheByUri) {
+				memoryCache = new UriIndexedMemoryCache(memoryCache, denyCacheImageMultipleSizesInMemory);
+			} else if (denyCacheImageMultipleSizesInMemory) {
 				memoryCache = new FuzzyKeyMemoryCache(memoryCache, MemoryCacheUtils.createFuzzyKeyComparator());
 			}
 			if (downloader == null) {
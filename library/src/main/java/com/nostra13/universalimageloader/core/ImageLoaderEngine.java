@@ -15,20 +15,41 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core;
 
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.UriIndexedMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
 import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
+import com.nostra13.universalimageloader.core.download.BaseImageDownloader;
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.PriorityQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -40,6 +61,17 @@ import java.util.concurrent.locks.ReentrantLock;
  * @since 1.7.1
  */
 class ImageLoaderEngine {
+
+	/** Priority of prefetching tasks. Such network tasks are executed by idle workers of task executor only. */
+	static final int PREFETCH_PRIORITY = Integer.MIN_VALUE;
+
+	private static final int DISK_CACHE_INDEX_CAPACITY = 512;
+	/** Interval (in milliseconds) between attempts to execute queued prefetching tasks */
+	private static final int PREFETCH_DISPATCH_INTERVAL = 100;
+	private static final int HELD_TASKS_INITIAL_CAPACITY = 16;
+	/** Interval (in milliseconds) between passes of releasing of held tasks */
+	private static final int HELD_TASKS_RELEASE_INTERVAL = 50;
+
 	/*ImageLoader加载配置*/
 	final ImageLoaderConfiguration configuration;
 	/*任务执行者*/
@@ -48,10 +80,33 @@ class ImageLoaderEngine {
 	private Executor taskExecutorForCachedImages;
 	/*任务分配者*/
 	private Executor taskDistributor;
+	/*非UI线程回调执行者*/
+	private Executor callbackExecutor;
+	/*延时加载任务调度者，第一次使用时创建*/
+	private ScheduledExecutorService delayScheduler;
+	/*分阶段流水线的解码阶段和后处理阶段执行者*/
+	private Executor decodeStageExecutor;
+	private Executor processStageExecutor;
 
-	private final Map<Integer, String> cacheKeysForImageAwares = Collections
-			.synchronizedMap(new HashMap<Integer, String>());
-	private final Map<String, ReentrantLock> uriLocks = new WeakHashMap<String, ReentrantLock>();
+	/*ImageAware的id与当前显示图片的内存缓存key的映射，读操作无锁*/
+	private final ConcurrentIntObjectMap<String> cacheKeysForImageAwares = new ConcurrentIntObjectMap<String>();
+	/*排队中或者执行中的图片加载任务，key为ImageAware的id*/
+	private final ConcurrentIntObjectMap<LoadAndDisplayImageTask> tasksForImageAwares =
+			new ConcurrentIntObjectMap<LoadAndDisplayImageTask>();
+	/*图片URI锁，只有正在加载的URI才有锁对象，最后一个使用者释放后删除（引用计数）*/
+	private final Map<String, UriLock> uriLocks = new HashMap<String, UriLock>();
+	/*已经缓存在本地文件系统中的图片索引，避免重复访问文件系统*/
+	private final Map<String, File> diskCacheIndex = Collections.synchronizedMap(
+			new LinkedHashMap<String, File>(DISK_CACHE_INDEX_CAPACITY, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+					return size() > DISK_CACHE_INDEX_CAPACITY;
+				}
+			});
+	/*正在加载中的图片URI，以及等待同一加载结果的订阅任务*/
+	private final Map<String, List<LoadAndDisplayImageTask>> inFlightLoads = new HashMap<String, List<LoadAndDisplayImageTask>>();
+	/*等待正在加载中的图片结果的预加载任务，与inFlightLoads使用同一个锁*/
+	private final Map<String, List<PrefetchTask>> inFlightPrefetches = new HashMap<String, List<PrefetchTask>>();
 	/*暂停*/
 	private final AtomicBoolean paused = new AtomicBoolean(false);
 	/*网络拒绝访问*/
@@ -60,6 +115,41 @@ class ImageLoaderEngine {
 	private final AtomicBoolean slowNetwork = new AtomicBoolean(false);
 
 	private final Object pauseLock = new Object();
+	/*暂停期间提交的任务，不占用任何线程，恢复后按照优先级顺序释放*/
+	private final PriorityQueue<LoadAndDisplayImageTask> heldTasks = new PriorityQueue<LoadAndDisplayImageTask>(
+			HELD_TASKS_INITIAL_CAPACITY, new PrioritizedTask.PriorityComparator());
+	private final Runnable heldTasksReleaser = new Runnable() {
+		@Override
+		public void run() {
+			releaseHeldTasks();
+		}
+	};
+	/*是否有释放等待任务的流程在进行中*/
+	private final AtomicBoolean heldTasksReleasing = new AtomicBoolean(false);
+	/*预加载网络任务队列（先进先出），任务只在网络线程空闲时执行*/
+	private final LinkedList<Runnable> prefetchTasks = new LinkedList<Runnable>();
+	private final AtomicBoolean prefetchDispatchScheduled = new AtomicBoolean(false);
+	private final Runnable prefetchDispatcher = new Runnable() {
+		@Override
+		public void run() {
+			prefetchDispatchScheduled.set(false);
+			executePrefetchTasks();
+		}
+	};
+	/*网络下载并发数自适应控制器，未开启时为null*/
+	private final AdaptiveConcurrencyController concurrencyController;
+	/*下载图片到本地文件系统缓存的帮助类*/
+	private final DiskCacheWriter diskCacheWriter;
+	/*按主机限制网络任务并发数的调度器，未开启时为null*/
+	private final HostScheduler hostScheduler;
+	/*加载失败的图片地址缓存，未开启时为null*/
+	private final FailedUriCache failedUriCache;
+	/*当前显示中的图片，未开启时为null*/
+	private final ActiveResources activeResources;
+	/*任务序号，用于相同优先级任务的排序*/
+	private final AtomicLong taskSequence = new AtomicLong();
+	/*每个Looper对应的批量显示分发器*/
+	private final Map<Looper, DisplayBatcher> displayBatchers = new HashMap<Looper, DisplayBatcher>();
 
 	/**
 	 * ImageLoader引擎构造器
@@ -72,52 +162,440 @@ class ImageLoaderEngine {
 		taskExecutor = configuration.taskExecutor;
 		taskExecutorForCachedImages = configuration.taskExecutorForCachedImages;
 		taskDistributor = DefaultConfigurationFactory.createTaskDistributor();
+		callbackExecutor = DefaultConfigurationFactory.createCallbackExecutor();
+		diskCacheWriter = new DiskCacheWriter(this);
+		if (configuration.stagedPipeline) {
+			decodeStageExecutor = createStageExecutor(PipelineStage.DECODE);
+			processStageExecutor = createStageExecutor(PipelineStage.PROCESS);
+		}
+		if (configuration.maxThreadPoolSize > 0 && !configuration.customExecutor) {
+			concurrencyController = new AdaptiveConcurrencyController(configuration.minThreadPoolSize,
+					configuration.maxThreadPoolSize, configuration.threadPoolSize);
+		} else {
+			concurrencyController = null;
+		}
+		if (configuration.maxConnectionsPerHost > 0) {
+			hostScheduler = new HostScheduler(configuration.maxConnectionsPerHost, getNetworkThreadPoolSize(),
+					configuration.tasksProcessingType);
+		} else {
+			hostScheduler = null;
+		}
+		if (configuration.failedUriCacheSize > 0) {
+			failedUriCache = new FailedUriCache(configuration.failedUriCacheSize, configuration.failedUriMinTtl,
+					configuration.failedUriMaxTtl);
+		} else {
+			failedUriCache = null;
+		}
+		if (configuration.activeResources || configuration.bitmapPool != null) {
+			activeResources = new ActiveResources(configuration.memoryCache);
+		} else {
+			activeResources = null;
+		}
+		if (configuration.bitmapPool != null) {
+			MemoryCache memoryCache = configuration.memoryCache;
+			if (memoryCache instanceof FuzzyKeyMemoryCache) {
+				memoryCache = ((FuzzyKeyMemoryCache) memoryCache).getWrappedCache();
+			} else if (memoryCache instanceof UriIndexedMemoryCache) {
+				memoryCache = ((UriIndexedMemoryCache) memoryCache).getWrappedCache();
+			}
+			if (memoryCache instanceof LruMemoryCache) {
+				((LruMemoryCache) memoryCache).setBitmapPool(
+						new ActiveResources.OffScreenBitmapPool(configuration.bitmapPool, activeResources));
+			}
+		}
 	}
 
-	/** Submits task to execution pool */
 	/**
+	 * Submits task to execution pool
 	 * 提交图片加载和显示任务到执行线程池中,进行运行
 	 * @param task   具体需要执行的任务
 	 */
 	void submit(final LoadAndDisplayImageTask task) {
+		if (task.isCancelled()) return;
+		tasksForImageAwares.put(task.getImageAwareId(), task);
+		if (task.shouldScheduleDeadline()) {
+			scheduleDeadline(task);
+		}
+		//引擎暂停中，任务进入等待队列，不分配给任何线程
+		if (holdIfPaused(task)) return;
+		//需要延时加载的任务，延时结束后再分配给工作线程
+		if (task.shouldDelayBeforeLoading()) {
+			scheduleDelayed(task);
+			return;
+		}
+		//图片已经在索引中，不需要访问文件系统，直接分配给taskExecutorForCachedImages
+		File indexedImage = getIndexedImageOnDisk(task.getLoadingUri());
+		if (indexedImage != null) {
+			task.setImageFileOnDisk(indexedImage, false);
+			initExecutorsIfNeed();
+			executeCachedImageTask(task);
+			return;
+		}
 		taskDistributor.execute(new Runnable() {
 			@Override
 			public void run() {
+				if (task.isCancelled()) return;
 				//从文件系统缓存中获取图片文件
-				File image = configuration.diskCache.get(task.getLoadingUri());
+				File image = findImageOnDisk(task.getLoadingUri());
+				task.setImageFileOnDisk(image, true);
 				//判断是否已经取得了图片
-				boolean isImageCachedOnDisk = image != null && image.exists();
+				boolean isImageCachedOnDisk = image != null;
 				initExecutorsIfNeed();
 				if (isImageCachedOnDisk) {
 					//如果当前图片已经缓存在本地文件系统了，直接采用taskExecutorForCachedImages来进行执行任务
-					taskExecutorForCachedImages.execute(task);
+					executeCachedImageTask(task);
 				} else {
 					//当天图片在本地文件系统中没有缓存，直接采用taskExecutor来进行执行任务
-					taskExecutor.execute(task);
+					executeNetworkTask(task);
 				}
 			}
 		});
 	}
 
+	/**
+	 * Executes task which image is cached on disk. Prefetching task goes into queue of prefetching tasks instead, so it
+	 * doesn't overtake display tasks in LIFO queue and isn't dropped by them from full queue.
+	 * 执行本地缓存图片的解码任务，预加载任务进入预加载队列
+	 */
+	private void executeCachedImageTask(LoadAndDisplayImageTask task) {
+		if (task.getPriority() == PREFETCH_PRIORITY) {
+			queuePrefetchTask(task);
+		} else {
+			taskExecutorForCachedImages.execute(task);
+		}
+	}
+
+	/**
+	 * Executes task which should download image. If per-host limit is set then task is executed only when its host has
+	 * free slot, otherwise it waits in host queue.
+	 * 执行网络下载任务，开启主机并发限制时任务可能在主机队列中等待
+	 */
+	private void executeNetworkTask(LoadAndDisplayImageTask task) {
+		if (task.getPriority() == PREFETCH_PRIORITY) {
+			queuePrefetchTask(task);
+			return;
+		}
+		String host = hostScheduler != null ? BaseImageDownloader.getHost(task.getLoadingUri()) : null;
+		if (host == null) {
+			taskExecutor.execute(task);
+		} else {
+			task.setHost(host);
+			if (hostScheduler.admit(task, host)) {
+				task.onHostSlotAcquired();
+				taskExecutor.execute(task);
+			}
+		}
+	}
+
+	/**
+	 * Releases host slot of finished (or dequeued) network task and executes tasks which were admitted instead of it.
+	 * 释放主机并发名额，并执行轮询得到的等待任务
+	 */
+	void releaseHostSlot(String host) {
+		executeAdmittedTasks(hostScheduler.release(host));
+	}
+
+	private void executeAdmittedTasks(List<LoadAndDisplayImageTask> admittedTasks) {
+		if (admittedTasks == null) return;
+		initExecutorsIfNeed();
+		for (LoadAndDisplayImageTask task : admittedTasks) {
+			task.onHostSlotAcquired();
+			taskExecutor.execute(task);
+		}
+	}
+
+	/**
+	 * Puts prefetching task into queue of prefetching tasks. Unlike display tasks they don't go into queue of task
+	 * executor (so they don't overtake display tasks in LIFO queue), they're executed only when task executor has idle
+	 * workers and host of image has free slot (if image should be downloaded).
+	 * 预加载任务进入单独的低优先级队列
+	 */
+	private void queuePrefetchTask(Runnable task) {
+		synchronized (prefetchTasks) {
+			prefetchTasks.add(task);
+		}
+		executePrefetchTasks();
+	}
+
+	/**
+	 * Executes queued prefetching tasks by idle workers of task executor. Tasks of hosts without free slot are skipped.
+	 * If some tasks are left in queue then next attempt is scheduled.
+	 */
+	private void executePrefetchTasks() {
+		initExecutorsIfNeed();
+		int idleWorkers = getIdleWorkerCount();
+		List<Runnable> admittedTasks = new ArrayList<Runnable>();
+		boolean hasMore;
+		synchronized (prefetchTasks) {
+			Iterator<Runnable> it = prefetchTasks.iterator();
+			while (admittedTasks.size() < idleWorkers && it.hasNext()) {
+				Runnable task = it.next();
+				if (admitPrefetchTask(task)) {
+					it.remove();
+					admittedTasks.add(task);
+				}
+			}
+			hasMore = !prefetchTasks.isEmpty();
+		}
+		for (Runnable task : admittedTasks) {
+			taskExecutor.execute(task);
+		}
+		if (hasMore && prefetchDispatchScheduled.compareAndSet(false, true)) {
+			getDelayScheduler().schedule(prefetchDispatcher, PREFETCH_DISPATCH_INTERVAL, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/** @return <b>true</b> - if prefetching task can be executed (its host has free slot); <b>false</b> - otherwise */
+	private boolean admitPrefetchTask(Runnable task) {
+		if (hostScheduler == null) return true;
+		// 图片已在本地缓存中，只需解码，不占用主机并发名额
+		if (task instanceof LoadAndDisplayImageTask && ((LoadAndDisplayImageTask) task).isImageCachedOnDisk()) {
+			return true;
+		}
+		String uri = task instanceof PrefetchTask ? ((PrefetchTask) task).getUri()
+				: ((LoadAndDisplayImageTask) task).getLoadingUri();
+		String host = BaseImageDownloader.getHost(uri);
+		if (host == null) return true;
+		if (!hostScheduler.tryAdmit(host)) return false;
+
+		if (task instanceof PrefetchTask) {
+			((PrefetchTask) task).onHostSlotAcquired(host);
+		} else {
+			((LoadAndDisplayImageTask) task).setHost(host);
+			((LoadAndDisplayImageTask) task).onHostSlotAcquired();
+		}
+		return true;
+	}
+
+	/** @return <b>true</b> - if task was removed from queue of prefetching tasks; <b>false</b> - otherwise */
+	private boolean removeFromPrefetchQueue(Runnable task) {
+		synchronized (prefetchTasks) {
+			return prefetchTasks.remove(task);
+		}
+	}
+
+	/** Removes task from host queue or releases its host slot if task is removed from queue of task executor */
+	private boolean removeFromHostQueue(LoadAndDisplayImageTask task, boolean dequeuedFromExecutor) {
+		if (hostScheduler == null || task.getHost() == null) return false;
+		if (dequeuedFromExecutor) {
+			task.releaseHostSlot();
+			return false;
+		}
+		return hostScheduler.remove(task, task.getHost());
+	}
+
+	private int getNetworkThreadPoolSize() {
+		return concurrencyController != null ? concurrencyController.getLimit() : configuration.threadPoolSize;
+	}
+
+	/**
+	 * Schedules task submission after {@linkplain DisplayImageOptions#getDelayBeforeLoading() delay before loading}.
+	 * Task doesn't occupy worker thread during the delay. It is dropped if it isn't actual when delay is expired.
+	 * 延时结束后再提交任务
+	 */
+	private void scheduleDelayed(final LoadAndDisplayImageTask task) {
+		task.onDelayScheduled();
+		getDelayScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (task.isNotActual()) {
+					finishDisplayTask(task);
+					if (task.isExpired()) {
+						task.fireTimeoutEvent();
+					}
+				} else {
+					submit(task);
+				}
+			}
+		}, task.getDelayBeforeLoading(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Re-submits task after delay defined by retry policy. Task doesn't occupy worker thread while it waits for retry.
+	 * It is dropped if it isn't actual when delay is expired.
+	 * 延时结束后重新提交下载失败的任务
+	 */
+	void scheduleRetry(final LoadAndDisplayImageTask task, long delay) {
+		getDelayScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (task.isNotActual()) {
+					finishDisplayTask(task);
+					if (task.isExpired()) {
+						task.fireTimeoutEvent();
+					}
+				} else {
+					submit(task);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Schedules expiration of task at its deadline. Task which is still waiting for execution at this moment is dropped
+	 * and fails with {@link FailReason.FailType#TIMEOUT TIMEOUT}. Running task checks its deadline by itself.
+	 * 在任务期限到达时使排队中的任务失败
+	 */
+	private void scheduleDeadline(final LoadAndDisplayImageTask task) {
+		ScheduledFuture<?> future = getDelayScheduler().schedule(new Runnable() {
+			@Override
+			public void run() {
+				expireTask(task);
+			}
+		}, task.getTimeToDeadline(), TimeUnit.MILLISECONDS);
+		task.onDeadlineScheduled(future);
+	}
+
+	/** Cancels scheduled expiration of task (if any) and removes it from scheduler queue */
+	private void cancelDeadline(LoadAndDisplayImageTask task) {
+		ScheduledFuture<?> future = task.takeDeadlineFuture();
+		if (future == null) return;
+		future.cancel(false);
+		if (future instanceof Runnable) {
+			synchronized (this) {
+				if (delayScheduler != null) {
+					// Cancelled task isn't removed from queue of ScheduledThreadPoolExecutor till its delay is passed
+					removeFromQueue(delayScheduler, (Runnable) future);
+				}
+			}
+		}
+	}
+
+	private void expireTask(LoadAndDisplayImageTask task) {
+		if (tasksForImageAwares.get(task.getImageAwareId()) != task) return; // task is finished or cancelled
+		boolean dequeued;
+		synchronized (pauseLock) {
+			dequeued = heldTasks.remove(task);
+		}
+		dequeued |= removeInFlightSubscriber(task);
+		dequeued |= removeFromPrefetchQueue(task);
+		boolean dequeuedFromExecutor = removeFromQueue(taskExecutor, task);
+		dequeued |= dequeuedFromExecutor;
+		dequeued |= removeFromHostQueue(task, dequeuedFromExecutor);
+		dequeued |= removeFromQueue(taskExecutorForCachedImages, task);
+		if (configuration.stagedPipeline && removeFromQueue(decodeStageExecutor, task)) {
+			// Task of decode stage is the loader of its URI, attached tasks must be released
+			task.onRemovedFromStageQueue();
+			dequeued = true;
+		}
+		// Task which isn't dequeued is running (or is being routed) now, it will fail by itself
+		if (dequeued) {
+			finishDisplayTask(task);
+			task.fireTimeoutEvent();
+		}
+	}
+
+	private synchronized ScheduledExecutorService getDelayScheduler() {
+		if (delayScheduler == null || delayScheduler.isShutdown()) {
+			delayScheduler = DefaultConfigurationFactory.createDelayScheduler();
+		}
+		return delayScheduler;
+	}
+
 	/**
 	 * Submits task to execution pool
 	 * 提交图片显示任务并且执行 (该图片从内存缓存中取得)
 	 */
 	void submit(ProcessAndDisplayImageTask task) {
 		initExecutorsIfNeed();
-		taskExecutorForCachedImages.execute(task);
+		if (configuration.stagedPipeline) {
+			processStageExecutor.execute(task);
+		} else {
+			taskExecutorForCachedImages.execute(task);
+		}
+	}
+
+	/**
+	 * Submits prefetch task to execution pool for network tasks
+	 * 提交图片预加载任务
+	 */
+	void submit(PrefetchTask task) {
+		initExecutorsIfNeed();
+		queuePrefetchTask(task);
+	}
+
+	/** Removes prefetch task from execution queue (if it's still queued) or from waiting for in-flight load */
+	void cancelPrefetchTask(PrefetchTask task) {
+		if (removeFromPrefetchQueue(task)) return;
+		if (removeFromQueue(taskExecutor, task)) {
+			task.releaseHostSlot();
+			return;
+		}
+		synchronized (inFlightLoads) {
+			List<PrefetchTask> waitingTasks = inFlightPrefetches.get(task.getUri());
+			if (waitingTasks != null) {
+				waitingTasks.remove(task);
+			}
+		}
+	}
+
+	/**
+	 * Hands off task to next stage of staged pipeline. If stage queue is full then task is executed on current thread.
+	 * 将任务交给流水线的下一阶段
+	 */
+	void submitToStage(LoadAndDisplayImageTask task, PipelineStage stage) {
+		initExecutorsIfNeed();
+		switch (stage) {
+			case DECODE:
+				decodeStageExecutor.execute(task);
+				break;
+			case PROCESS:
+				processStageExecutor.execute(task);
+				break;
+			case NETWORK:
+			default:
+				taskExecutor.execute(task);
+				break;
+		}
+	}
+
+	/** @return <b>true</b> - if image loading is split into stages; <b>false</b> - otherwise */
+	boolean isStagedPipeline() {
+		return configuration.stagedPipeline;
+	}
+
+	/**
+	 * @return Number of tasks waiting in queue of incoming stage or <b>-1</b> if queue depth can't be defined (e.g. for
+	 * custom executor)
+	 */
+	int getQueueDepth(PipelineStage stage) {
+		Executor executor;
+		switch (stage) {
+			case DECODE:
+				executor = configuration.stagedPipeline ? decodeStageExecutor : taskExecutorForCachedImages;
+				break;
+			case PROCESS:
+				executor = configuration.stagedPipeline ? processStageExecutor : taskExecutorForCachedImages;
+				break;
+			case NETWORK:
+			default:
+				executor = taskExecutor;
+				break;
+		}
+		if (executor instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) executor).getQueue().size();
+		}
+		return -1;
 	}
 
 	/**
 	 * 根据需要进行初始化执行者
 	 */
-	private void initExecutorsIfNeed() {
+	private synchronized void initExecutorsIfNeed() {
 		if (!configuration.customExecutor && ((ExecutorService) taskExecutor).isShutdown()) {
-			taskExecutor = createTaskExecutor();
+			taskExecutor = createTaskExecutor(getNetworkThreadPoolSize());
 		}
 		if (!configuration.customExecutorForCachedImages && ((ExecutorService) taskExecutorForCachedImages)
 				.isShutdown()) {
-			taskExecutorForCachedImages = createTaskExecutor();
+			taskExecutorForCachedImages = createTaskExecutor(configuration.threadPoolSize);
+		}
+		if (configuration.stagedPipeline) {
+			if (((ExecutorService) decodeStageExecutor).isShutdown()) {
+				decodeStageExecutor = createStageExecutor(PipelineStage.DECODE);
+			}
+			if (((ExecutorService) processStageExecutor).isShutdown()) {
+				processStageExecutor = createStageExecutor(PipelineStage.PROCESS);
+			}
 		}
 	}
 
@@ -125,10 +603,192 @@ class ImageLoaderEngine {
 	 * 进行创建任务执行者
 	 * @return
 	 */
-	private Executor createTaskExecutor() {
+	private Executor createTaskExecutor(int threadPoolSize) {
 		return DefaultConfigurationFactory
-				.createExecutor(configuration.threadPoolSize, configuration.threadPriority,
-				configuration.tasksProcessingType);
+				.createExecutor(threadPoolSize, configuration.threadPriority,
+				configuration.tasksProcessingType, configuration.taskQueueCapacity);
+	}
+
+	/**
+	 * Registers finished network download. If adaptive thread pool size is enabled then pool size of task executor is
+	 * adjusted according to download statistics.
+	 * 统计网络下载结果，自适应调整网络下载线程数量
+	 *
+	 * @param bytes      Downloaded bytes
+	 * @param latency    Time (in milliseconds) till download stream was opened
+	 * @param successful <b>true</b> - if image was downloaded; <b>false</b> - if download failed
+	 */
+	void onNetworkDownloadFinished(long bytes, long latency, boolean successful) {
+		if (concurrencyController == null) return;
+		if (concurrencyController.onDownloadFinished(bytes, latency, successful)) {
+			int limit = concurrencyController.getLimit();
+			applyConcurrencyLimit(limit);
+			if (hostScheduler != null) {
+				executeAdmittedTasks(hostScheduler.setMaxActive(limit));
+			}
+		}
+	}
+
+	private synchronized void applyConcurrencyLimit(int limit) {
+		if (!(taskExecutor instanceof ThreadPoolExecutor)) return;
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) taskExecutor;
+		// Core pool size must never exceed maximum pool size
+		if (limit > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(limit);
+			executor.setCorePoolSize(limit);
+		} else {
+			executor.setCorePoolSize(limit);
+			executor.setMaximumPoolSize(limit);
+		}
+	}
+
+	private Executor createStageExecutor(PipelineStage stage) {
+		if (stage == PipelineStage.DECODE) {
+			return DefaultConfigurationFactory.createStageExecutor(
+					DefaultConfigurationFactory.getDecodeStageThreadPoolSize(), configuration.threadPriority,
+					"uil-pool-decode-");
+		} else {
+			return DefaultConfigurationFactory.createStageExecutor(
+					DefaultConfigurationFactory.getProcessStageThreadPoolSize(), configuration.threadPriority,
+					"uil-pool-process-");
+		}
+	}
+
+	/**
+	 * Looks for image in disk cache (checks file system) and remembers result in disk cache index.
+	 * 从本地文件系统缓存中查询图片，并且更新索引
+	 *
+	 * @return Cached image file or <b>null</b> if image isn't cached on disk
+	 */
+	File findImageOnDisk(String uri) {
+		File image = configuration.diskCache.get(uri);
+		if (image != null && image.length() > 0) { // length() is 0 for non-existent file
+			diskCacheIndex.put(uri, image);
+			return image;
+		}
+		diskCacheIndex.remove(uri);
+		return null;
+	}
+
+	/**
+	 * Index lookup doesn't access disk cache, so it isn't counted as access to cached image by disk cache. Task which
+	 * got file from index verifies it by {@link #findImageOnDisk(String)} on worker thread, it touches disk cache.
+	 *
+	 * @return Image file which is known to be cached on disk (file existence isn't checked) or <b>null</b> if there is
+	 * no such image in disk cache index
+	 */
+	File getIndexedImageOnDisk(String uri) {
+		return diskCacheIndex.get(uri);
+	}
+
+	/** Remembers that image for incoming URI is cached on disk in incoming file */
+	void indexImageOnDisk(String uri, File image) {
+		diskCacheIndex.put(uri, image);
+	}
+
+	/** Clears disk cache index. Should be called when disk cache is cleared. */
+	void clearDiskCacheIndex() {
+		diskCacheIndex.clear();
+	}
+
+	/**
+	 * Returns image from active images tier or from memory cache.
+	 * 先从当前显示中的图片获取，再从内存缓存中获取
+	 *
+	 * @return Bitmap or <b>null</b> if image isn't cached in memory
+	 */
+	Bitmap getCachedBitmap(String memoryCacheKey) {
+		if (activeResources != null) {
+			Bitmap bitmap = activeResources.get(memoryCacheKey);
+			if (bitmap != null) return bitmap;
+		}
+		return configuration.memoryCache.get(memoryCacheKey);
+	}
+
+	/**
+	 * Registers image which was displayed in ImageAware. Image is acquired by ImageAware (so it's kept in active images
+	 * tier) and bitmap won't be reused while it's displayed.
+	 * 记录显示在ImageAware中的图片
+	 */
+	void onBitmapDisplayed(ImageAware imageAware, String memoryCacheKey, Bitmap bitmap) {
+		if (activeResources != null) {
+			activeResources.onDisplayed(imageAware, memoryCacheKey, bitmap);
+		}
+	}
+
+	/**
+	 * Protects bitmap which is going to be displayed from reusing until it's {@linkplain #releaseBitmap(Bitmap)
+	 * released}
+	 */
+	void retainBitmap(Bitmap bitmap) {
+		if (activeResources != null && bitmap != null) {
+			activeResources.retain(bitmap);
+		}
+	}
+
+	/** Releases bitmap which was {@linkplain #retainBitmap(Bitmap) retained} */
+	void releaseBitmap(Bitmap bitmap) {
+		if (activeResources != null && bitmap != null) {
+			activeResources.release(bitmap);
+		}
+	}
+
+	/**
+	 * Invalidates displayed images of image URI, so they aren't got from active images tier and aren't returned into
+	 * memory cache anymore
+	 */
+	void invalidateActiveImages(String imageUri) {
+		if (activeResources != null) {
+			activeResources.invalidate(imageUri);
+		}
+	}
+
+	/** Invalidates all displayed images (memory cache was cleared) */
+	void invalidateActiveImages() {
+		if (activeResources != null) {
+			activeResources.invalidateAll();
+		}
+	}
+
+	/**
+	 * Registers that ImageAware doesn't display image of ImageLoader anymore (placeholder is displayed), so image is
+	 * released by ImageAware
+	 */
+	void onBitmapUnbound(ImageAware imageAware) {
+		if (activeResources != null) {
+			activeResources.onUnbound(imageAware);
+		}
+	}
+
+	/**
+	 * Returns type of remembered failure of image URI.
+	 * 获取图片地址未过期的加载失败类型
+	 *
+	 * @return Fail type or <b>null</b> if URI isn't known as failed (or its failure is expired)
+	 */
+	FailType getFailureOf(String uri) {
+		return failedUriCache != null ? failedUriCache.get(uri) : null;
+	}
+
+	/** Remembers failure of image URI (if failed URIs are cached) */
+	void rememberFailure(String uri, FailType failType) {
+		if (failedUriCache != null) {
+			failedUriCache.put(uri, failType);
+		}
+	}
+
+	/** Forgets failures of image URI which was loaded successfully */
+	void forgetFailure(String uri) {
+		if (failedUriCache != null) {
+			failedUriCache.remove(uri);
+		}
+	}
+
+	/** Clears remembered failures of image URIs */
+	void clearFailures() {
+		if (failedUriCache != null) {
+			failedUriCache.clear();
+		}
 	}
 
 	/**
@@ -139,13 +799,27 @@ class ImageLoaderEngine {
 		return cacheKeysForImageAwares.get(imageAware.getId());
 	}
 
+	/**
+	 * Returns memory cache key of image which is loading at this moment into ImageAware with incoming id
+	 * 根据ImageAware的id获取当前加载图片的内存缓存key
+	 */
+	String getLoadingCacheKeyForImageAware(int imageAwareId) {
+		return cacheKeysForImageAwares.get(imageAwareId);
+	}
+
 	/**
 	 *
 	 * Associates <b>memoryCacheKey</b> with <b>imageAware</b>. Then it helps to define image URI is loaded into View at
 	 * exact moment.
 	 */
 	void prepareDisplayTaskFor(ImageAware imageAware, String memoryCacheKey) {
-		cacheKeysForImageAwares.put(imageAware.getId(), memoryCacheKey);
+		int imageAwareId = imageAware.getId();
+		cacheKeysForImageAwares.put(imageAwareId, memoryCacheKey);
+		// ImageAware is rebound to another image so previous task isn't needed anymore
+		LoadAndDisplayImageTask task = tasksForImageAwares.get(imageAwareId);
+		if (task != null && !memoryCacheKey.equals(task.getMemoryCacheKey())) {
+			cancelTaskFor(imageAwareId);
+		}
 	}
 
 	/**
@@ -155,7 +829,129 @@ class ImageLoaderEngine {
 	 *                   will be cancelled
 	 */
 	void cancelDisplayTaskFor(ImageAware imageAware) {
-		cacheKeysForImageAwares.remove(imageAware.getId());
+		int imageAwareId = imageAware.getId();
+		cacheKeysForImageAwares.remove(imageAwareId);
+		cancelTaskFor(imageAwareId);
+	}
+
+	/**
+	 * Cancels task which is queued or executed for ImageAware with incoming id. Queued task is removed from executor
+	 * queue, running task stops image downloading (if it's not almost completed).
+	 * 取消ImageAware对应的任务，排队中的任务直接从执行队列中移除
+	 */
+	private void cancelTaskFor(int imageAwareId) {
+		LoadAndDisplayImageTask task = tasksForImageAwares.remove(imageAwareId);
+		if (task != null) {
+			task.cancel();
+			cancelDeadline(task);
+			synchronized (pauseLock) {
+				heldTasks.remove(task);
+			}
+			removeInFlightSubscriber(task);
+			removeFromPrefetchQueue(task);
+			removeFromHostQueue(task, removeFromQueue(taskExecutor, task));
+			removeFromQueue(taskExecutorForCachedImages, task);
+			if (configuration.stagedPipeline) {
+				// Task of decode stage is the loader of its URI, attached tasks must be released
+				if (removeFromQueue(decodeStageExecutor, task)) {
+					task.onRemovedFromStageQueue();
+				}
+				removeFromQueue(processStageExecutor, task);
+			}
+		}
+	}
+
+	/** @return <b>true</b> - if task was removed from executor queue; <b>false</b> - otherwise */
+	private static boolean removeFromQueue(Executor executor, Runnable task) {
+		return executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).remove(task);
+	}
+
+	/** Forgets incoming task for its ImageAware. Should be called when task doesn't need cancellation anymore. */
+	void finishDisplayTask(LoadAndDisplayImageTask task) {
+		tasksForImageAwares.remove(task.getImageAwareId(), task);
+		cancelDeadline(task);
+	}
+
+	/**
+	 * Registers incoming task as the loader of its image URI. If this URI is already loading by another task then
+	 * incoming task is attached to that load as subscriber and will be completed from its result, so worker thread of
+	 * incoming task can be released at once.
+	 * 注册正在加载的图片URI，如果该URI已经在加载中，当前任务作为订阅者等待加载结果
+	 *
+	 * @return <b>true</b> - if task should load image itself; <b>false</b> - if task was attached to in-flight load
+	 */
+	boolean attachToInFlightLoad(LoadAndDisplayImageTask task) {
+		String uri = task.getLoadingUri();
+		synchronized (inFlightLoads) {
+			List<LoadAndDisplayImageTask> subscribers = inFlightLoads.get(uri);
+			if (subscribers == null) {
+				inFlightLoads.put(uri, new ArrayList<LoadAndDisplayImageTask>());
+				return true;
+			}
+			subscribers.add(task);
+			return false;
+		}
+	}
+
+	/**
+	 * Finishes in-flight load of image URI. Must be called by task which {@linkplain #attachToInFlightLoad(LoadAndDisplayImageTask)
+	 * registered} the load.
+	 *
+	 * Prefetch tasks which waited for the load are queued again.
+	 *
+	 * @return Tasks which were attached to the load while it was running; can be <b>null</b>
+	 */
+	List<LoadAndDisplayImageTask> detachInFlightLoad(String uri) {
+		List<LoadAndDisplayImageTask> attachedTasks;
+		List<PrefetchTask> waitingTasks;
+		synchronized (inFlightLoads) {
+			attachedTasks = inFlightLoads.remove(uri);
+			waitingTasks = inFlightPrefetches.remove(uri);
+		}
+		if (waitingTasks != null) {
+			for (PrefetchTask task : waitingTasks) {
+				queuePrefetchTask(task);
+			}
+		}
+		return attachedTasks;
+	}
+
+	/** Removes task from subscribers of in-flight load of its image URI */
+	private boolean removeInFlightSubscriber(LoadAndDisplayImageTask task) {
+		synchronized (inFlightLoads) {
+			List<LoadAndDisplayImageTask> subscribers = inFlightLoads.get(task.getLoadingUri());
+			return subscribers != null && subscribers.remove(task);
+		}
+	}
+
+	/**
+	 * Attaches prefetch task to in-flight load of its image URI. Task is queued again when the load finishes, so it
+	 * checks disk cache for the result of the load and downloads image itself if the load didn't cache it on disk (e.g.
+	 * load failed or it doesn't use disk cache).
+	 * 预加载任务等待正在进行的同一URI加载完成，完成后重新进入预加载队列
+	 *
+	 * @return <b>true</b> - if task was attached; <b>false</b> - if image URI isn't loading at this moment
+	 */
+	boolean attachToInFlightLoad(PrefetchTask task) {
+		String uri = task.getUri();
+		synchronized (inFlightLoads) {
+			if (!inFlightLoads.containsKey(uri)) return false;
+			List<PrefetchTask> waitingTasks = inFlightPrefetches.get(uri);
+			if (waitingTasks == null) {
+				waitingTasks = new ArrayList<PrefetchTask>();
+				inFlightPrefetches.put(uri, waitingTasks);
+			}
+			waitingTasks.add(task);
+			return true;
+		}
+	}
+
+	/** @return <b>true</b> - if some tasks wait for result of in-flight load of image URI; <b>false</b> - otherwise */
+	boolean hasInFlightSubscribers(String uri) {
+		synchronized (inFlightLoads) {
+			List<LoadAndDisplayImageTask> subscribers = inFlightLoads.get(uri);
+			return subscribers != null && !subscribers.isEmpty();
+		}
 	}
 
 	/**
@@ -187,7 +983,9 @@ class ImageLoaderEngine {
 	 * 暂停任务运行
 	 */
 	void pause() {
-		paused.set(true);
+		synchronized (pauseLock) {
+			paused.set(true);
+		}
 	}
 
 	/**
@@ -195,12 +993,86 @@ class ImageLoaderEngine {
 	 * 任务恢复运行
 	 */
 	void resume() {
-		paused.set(false);
 		synchronized (pauseLock) {
+			paused.set(false);
+			// Wake up synchronous tasks only, asynchronous tasks don't wait for resume on threads
 			pauseLock.notifyAll();
+			if (heldTasks.isEmpty()) return;
+		}
+		if (heldTasksReleasing.compareAndSet(false, true)) {
+			taskDistributor.execute(heldTasksReleaser);
 		}
 	}
 
+	/**
+	 * Puts incoming task into queue of held tasks if engine is paused. Held task doesn't occupy any thread, it will be
+	 * re-submitted after {@linkplain #resume() resume}.
+	 * 如果引擎暂停中，将任务放入等待队列
+	 *
+	 * @return <b>true</b> - if task was held; <b>false</b> - if engine isn't paused
+	 */
+	boolean holdIfPaused(LoadAndDisplayImageTask task) {
+		synchronized (pauseLock) {
+			if (!paused.get()) return false;
+			heldTasks.add(task);
+			return true;
+		}
+	}
+
+	/**
+	 * Re-submits held tasks in priority order. Every pass releases only as many tasks as there are idle workers in task
+	 * executor, so released tasks are run at once in priority order (they aren't reordered by LIFO queue) and newly
+	 * submitted tasks aren't stuck behind all held ones. Next pass is made after {@value #HELD_TASKS_RELEASE_INTERVAL}
+	 * ms. Releasing stops if engine is paused again. Held tasks which aren't actual anymore are dropped.
+	 * 按照优先级顺序分批释放等待队列中的任务，每次只释放空闲线程数量的任务
+	 */
+	private void releaseHeldTasks() {
+		int idleWorkers = getIdleWorkerCount();
+		List<LoadAndDisplayImageTask> batch = new ArrayList<LoadAndDisplayImageTask>(idleWorkers);
+		List<LoadAndDisplayImageTask> dropped = new ArrayList<LoadAndDisplayImageTask>();
+		synchronized (pauseLock) {
+			if (paused.get() || heldTasks.isEmpty()) {
+				heldTasksReleasing.set(false);
+				return;
+			}
+			while (batch.size() < idleWorkers && !heldTasks.isEmpty()) {
+				LoadAndDisplayImageTask task = heldTasks.poll();
+				if (isHeldTaskActual(task)) {
+					batch.add(task);
+				} else {
+					dropped.add(task);
+				}
+			}
+		}
+		for (LoadAndDisplayImageTask task : dropped) {
+			finishDisplayTask(task);
+			if (task.isExpired()) {
+				task.fireTimeoutEvent();
+			}
+		}
+		for (LoadAndDisplayImageTask task : batch) {
+			submit(task);
+		}
+		getDelayScheduler().schedule(heldTasksReleaser, HELD_TASKS_RELEASE_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return <b>true</b> - if held task should be released; <b>false</b> - if task is cancelled, expired or replaced
+	 * by newer task for its ImageAware
+	 */
+	private boolean isHeldTaskActual(LoadAndDisplayImageTask task) {
+		return !task.isNotActual() && tasksForImageAwares.get(task.getImageAwareId()) == task;
+	}
+
+	/** @return Number of workers of task executor which don't run or wait for any task */
+	private int getIdleWorkerCount() {
+		if (!(taskExecutor instanceof ThreadPoolExecutor)) return configuration.threadPoolSize;
+
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) taskExecutor;
+		int idle = executor.getCorePoolSize() - executor.getActiveCount() - executor.getQueue().size();
+		return Math.max(0, idle);
+	}
+
 	/**
 	 * 停止ImageLoader引擎,取消所有正在运行或者挂起的图片显示任务，并且清除内部的数据
 	 * Stops engine, cancels all running and scheduled display image tasks. Clears internal data.
@@ -214,23 +1086,120 @@ class ImageLoaderEngine {
 			((ExecutorService) taskExecutor).shutdownNow();
 		}
 		if (!configuration.customExecutorForCachedImages) {
-			((ExecutorService) taskExecutorForCachedImages).shutdownNow();
+			discardTasks(((ExecutorService) taskExecutorForCachedImages).shutdownNow());
+		}
+		if (configuration.stagedPipeline) {
+			((ExecutorService) decodeStageExecutor).shutdownNow();
+			discardTasks(((ExecutorService) processStageExecutor).shutdownNow());
+		}
+		synchronized (this) {
+			if (delayScheduler != null) {
+				delayScheduler.shutdownNow();
+			}
 		}
+		// 调度器已关闭，已安排的释放/分发任务不会再执行，重置标志以便init()之后重新调度
+		heldTasksReleasing.set(false);
+		prefetchDispatchScheduled.set(false);
 		cacheKeysForImageAwares.clear();
-		uriLocks.clear();
+		tasksForImageAwares.clear();
+		diskCacheIndex.clear();
+		synchronized (pauseLock) {
+			heldTasks.clear();
+		}
+		synchronized (inFlightLoads) {
+			inFlightLoads.clear();
+			inFlightPrefetches.clear();
+		}
+		synchronized (prefetchTasks) {
+			prefetchTasks.clear();
+		}
+		if (hostScheduler != null) {
+			hostScheduler.clear();
+		}
+		synchronized (displayBatchers) {
+			// Already posted batches are still run, new ones go to new batchers
+			displayBatchers.clear();
+		}
+	}
+
+	/** Releases bitmaps retained by tasks which were never run */
+	private void discardTasks(List<Runnable> tasks) {
+		for (Runnable task : tasks) {
+			discardTask(task);
+		}
+	}
+
+	/**
+	 * Releases bitmap retained by task which will never be run. Tasks which don't retain bitmaps are ignored.
+	 * 丢弃不会被执行的任务，释放其持有的图片
+	 */
+	void discardTask(Runnable task) {
+		if (task instanceof DisplayBitmapTask) {
+			((DisplayBitmapTask) task).discard();
+		} else if (task instanceof ProcessAndDisplayImageTask) {
+			((ProcessAndDisplayImageTask) task).discard();
+		}
 	}
 
 	void fireCallback(Runnable r) {
-		taskDistributor.execute(r);
+		callbackExecutor.execute(r);
+	}
+
+	/** Returns <b>true</b> - if display tasks should be delivered by frame batches */
+	boolean isDisplayBatched() {
+		return configuration.displayBatchInterval > 0;
+	}
+
+	/**
+	 * Adds task to display batch of handler's looper. All tasks of the same looper are run in order they were posted.
+	 * 将任务加入Handler对应Looper的批量显示队列
+	 *
+	 * @return <b>true</b> - if task will be run; <b>false</b> - if handler's looper is exiting
+	 */
+	boolean postToDisplayBatch(Runnable r, Handler handler) {
+		Looper looper = handler.getLooper();
+		DisplayBatcher batcher;
+		synchronized (displayBatchers) {
+			batcher = displayBatchers.get(looper);
+			if (batcher == null) {
+				batcher = new DisplayBatcher(looper, configuration.displayBatchInterval);
+				displayBatchers.put(looper, batcher);
+			}
+		}
+		return batcher.post(r);
+	}
+
+	/**
+	 * Returns lock for image URI. All tasks which acquired lock for the same URI get the same lock, lock object exists
+	 * until the last of them releases it by {@link #releaseLockForUri(UriLock)}. So number of lock objects is bounded by
+	 * number of URIs which are loading now and tasks for different URIs never wait for each other (lock is held while
+	 * image is downloaded).
+	 * 获取图片URI对应的锁，用完后必须调用{@link #releaseLockForUri(UriLock)}
+	 */
+	UriLock acquireLockForUri(String uri) {
+		synchronized (uriLocks) {
+			UriLock lock = uriLocks.get(uri);
+			if (lock == null) {
+				lock = new UriLock(uri);
+				uriLocks.put(uri, lock);
+			}
+			lock.holders++;
+			return lock;
+		}
 	}
 
-	ReentrantLock getLockForUri(String uri) {
-		ReentrantLock lock = uriLocks.get(uri);
-		if (lock == null) {
-			lock = new ReentrantLock();
-			uriLocks.put(uri, lock);
+	/** Releases lock acquired by {@link #acquireLockForUri(String)}. Lock must be unlocked before. */
+	void releaseLockForUri(UriLock lock) {
+		synchronized (uriLocks) {
+			if (--lock.holders == 0) {
+				uriLocks.remove(lock.uri);
+			}
 		}
-		return lock;
+	}
+
+	/** @return Sequence number for new task. Newer tasks get bigger numbers. */
+	long nextTaskSequence() {
+		return taskSequence.incrementAndGet();
 	}
 
 	AtomicBoolean getPause() {
@@ -241,11 +1210,34 @@ class ImageLoaderEngine {
 		return pauseLock;
 	}
 
-	boolean isNetworkDenied() {
-		return networkDenied.get();
+	/**
+	 * @return Downloader for current network state (see {@link #denyNetworkDownloads(boolean)} and
+	 * {@link #handleSlowNetwork(boolean)})
+	 */
+	ImageDownloader getDownloader() {
+		if (networkDenied.get()) {
+			return configuration.networkDeniedDownloader;
+		} else if (slowNetwork.get()) {
+			return configuration.slowNetworkDownloader;
+		} else {
+			return configuration.downloader;
+		}
+	}
+
+	DiskCacheWriter getDiskCacheWriter() {
+		return diskCacheWriter;
 	}
 
-	boolean isSlowNetwork() {
-		return slowNetwork.get();
+	/** Lock of image URI with count of tasks which acquired it */
+	static final class UriLock extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+
+		final String uri;
+		/*获取了该锁的任务数，由uriLocks同步*/
+		int holders;
+
+		UriLock(String uri) {
+			this.uri = uri;
+		}
 	}
 }
@@ -20,8 +20,6 @@ import com.nostra13.universalimageloader.core.listener.ImageLoadingProgressListe
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 
-import java.util.concurrent.locks.ReentrantLock;
-
 /**
  * 图片加载显示任务的信息对象封装实体类
  * Information for load'n'display image task
@@ -48,19 +46,16 @@ final class ImageLoadingInfo {
 	final ImageLoadingListener listener;
 	/*图片下载进度监听器*/
 	final ImageLoadingProgressListener progressListener;
-	//加锁
-	final ReentrantLock loadFromUriLock;
 
 	public ImageLoadingInfo(String uri, ImageAware imageAware, ImageSize targetSize, String memoryCacheKey,
 			DisplayImageOptions options, ImageLoadingListener listener,
-			ImageLoadingProgressListener progressListener, ReentrantLock loadFromUriLock) {
+			ImageLoadingProgressListener progressListener) {
 		this.uri = uri;
 		this.imageAware = imageAware;
 		this.targetSize = targetSize;
 		this.options = options;
 		this.listener = listener;
 		this.progressListener = progressListener;
-		this.loadFromUriLock = loadFromUriLock;
 		this.memoryCacheKey = memoryCacheKey;
 	}
 }
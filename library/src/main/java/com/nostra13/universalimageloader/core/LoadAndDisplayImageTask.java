@@ -19,13 +19,13 @@ import android.graphics.Bitmap;
 import android.os.Handler;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
-import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.LoadedFrom;
+import com.nostra13.universalimageloader.core.assist.PipelineStage;
 import com.nostra13.universalimageloader.core.assist.ViewScaleType;
 import com.nostra13.universalimageloader.core.decode.ImageDecoder;
 import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
-import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.download.CircuitBreakerImageDownloader;
 import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
 import com.nostra13.universalimageloader.core.imageaware.ImageAware;
 import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
@@ -35,9 +35,10 @@ import com.nostra13.universalimageloader.utils.L;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 图片加载和显示任务线程。 使用网络下载的或者本地文件系统缓存中图片。
@@ -50,30 +51,34 @@ import java.util.concurrent.locks.ReentrantLock;
  * @see ImageLoadingInfo
  * @since 1.3.1
  */
-final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
+final class LoadAndDisplayImageTask implements PrioritizedTask, IoUtils.CopyListener {
 
 	private static final String LOG_WAITING_FOR_RESUME = "ImageLoader is paused. Waiting...  [%s]";
+	private static final String LOG_HELD_WHILE_PAUSED = "ImageLoader is paused. Task is held until resume [%s]";
 	private static final String LOG_RESUME_AFTER_PAUSE = ".. Resume loading [%s]";
 	private static final String LOG_DELAY_BEFORE_LOADING = "Delay %d ms before loading...  [%s]";
 	private static final String LOG_START_DISPLAY_IMAGE_TASK = "Start display image task [%s]";
 	private static final String LOG_WAITING_FOR_IMAGE_LOADED = "Image already is loading. Waiting... [%s]";
+	private static final String LOG_ATTACHED_TO_IN_FLIGHT_LOAD = "Image already is loading. Task is attached to it. [%s]";
+	private static final String LOG_COMPLETE_FROM_IN_FLIGHT_LOAD = "...Get bitmap from attached loading. [%s]";
 	private static final String LOG_GET_IMAGE_FROM_MEMORY_CACHE_AFTER_WAITING = "...Get cached bitmap from memory after waiting. [%s]";
 	private static final String LOG_LOAD_IMAGE_FROM_NETWORK = "Load image from network [%s]";
 	private static final String LOG_LOAD_IMAGE_FROM_DISK_CACHE = "Load image from disk cache [%s]";
-	private static final String LOG_RESIZE_CACHED_IMAGE_FILE = "Resize image in disk cache [%s]";
 	private static final String LOG_PREPROCESS_IMAGE = "PreProcess image before caching in memory [%s]";
 	private static final String LOG_POSTPROCESS_IMAGE = "PostProcess image before displaying [%s]";
 	private static final String LOG_CACHE_IMAGE_IN_MEMORY = "Cache image in memory [%s]";
 	private static final String LOG_CACHE_IMAGE_ON_DISK = "Cache image on disk [%s]";
-	private static final String LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK = "Process image before cache on disk [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_REUSED = "ImageAware is reused for another image. Task is cancelled. [%s]";
 	private static final String LOG_TASK_CANCELLED_IMAGEAWARE_COLLECTED = "ImageAware was collected by GC. Task is cancelled. [%s]";
 	private static final String LOG_TASK_INTERRUPTED = "Task was interrupted [%s]";
+	private static final String LOG_TASK_CANCELLED = "Task was cancelled [%s]";
+	private static final String LOG_TASK_EXPIRED = "Deadline of task is passed [%s]";
+	private static final String LOG_TASK_DROPPED = "Task queue is full. The oldest task is dropped [%s]";
+	private static final String LOG_RETRY_DOWNLOAD = "Download failed, retry #%1$d in %2$d ms [%3$s]";
+	private static final String LOG_HAND_OFF_TO_STAGE = "Hand off task to %s stage [%s]";
 
-	private static final String ERROR_NO_IMAGE_STREAM = "No stream for image [%s]";
 	private static final String ERROR_PRE_PROCESSOR_NULL = "Pre-processor returned null [%s]";
 	private static final String ERROR_POST_PROCESSOR_NULL = "Post-processor returned null [%s]";
-	private static final String ERROR_PROCESSOR_FOR_DISK_CACHE_NULL = "Bitmap processor for disk cache returned null [%s]";
     /*图片加载引擎*/
 	private final ImageLoaderEngine engine;
 	/*图片加载相关信息对象*/
@@ -83,22 +88,52 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	// Helper references  帮助项配置
 	/*图片加载器配置信息*/
 	private final ImageLoaderConfiguration configuration;
-	private final ImageDownloader downloader;
-	private final ImageDownloader networkDeniedDownloader;
-	private final ImageDownloader slowNetworkDownloader;
 	//图片解码器
 	private final ImageDecoder decoder;
 	final String uri;
 	private final String memoryCacheKey;
 	final ImageAware imageAware;
+	private final int imageAwareId;
 	private final ImageSize targetSize;
 	final DisplayImageOptions options;
 	final ImageLoadingListener listener;
 	final ImageLoadingProgressListener progressListener;
 	private final boolean syncLoading;
+	private final long sequence;
+	// Time (System.currentTimeMillis()) of task deadline or 0 if task has no deadline  任务期限时间
+	private final long deadlineTime;
 
 	// State vars  图片来源信息   默认为来源网络
 	private LoadedFrom loadedFrom = LoadedFrom.NETWORK;
+	// Result of loading which is shared with attached tasks  加载结果，用于完成订阅同一URI的任务
+	private Bitmap loadedBitmap;
+	private FailType failType;
+	private Throwable failCause;
+	private volatile boolean cancelled;
+	// Disk cache lookup result which is defined by engine before execution  任务分配时引擎查询的本地缓存结果
+	private boolean diskCacheLookedUp;
+	private File imageFileOnDisk;
+	private boolean imageFileOnDiskVerified;
+	// Current stage of staged pipeline and bitmap which is passed to process stage  流水线当前阶段
+	private PipelineStage stage = PipelineStage.NETWORK;
+	private Bitmap stagedBitmap;
+	private boolean diskCachingTried;
+	// Delay before loading is made by engine's scheduler (without holding worker thread)  延时由引擎调度完成
+	private volatile boolean delayScheduled;
+	// Scheduled expiration of task by engine (null if expiration isn't scheduled)  任务期限到期的调度
+	private volatile ScheduledFuture<?> deadlineFuture;
+	// Host of network image and number of acquired host slots (see ImageLoaderConfiguration.maxConnectionsPerHost)
+	private volatile String host;
+	private final AtomicInteger hostSlots = new AtomicInteger();
+	// Number of retried download attempts and delay of scheduled retry (-1 if retry isn't scheduled)  下载重试
+	private int retryAttempts;
+	private long retryDelay = -1;
+	// Coalesced progress events: the latest progress (current << 32 | total) and flag of pending progress message
+	private volatile long pendingProgress;
+	private final AtomicBoolean progressMessagePending = new AtomicBoolean(false);
+	private Runnable progressUpdater;
+	private long lastProgressTime;
+	private int lastProgressPercent = -1;
 
 	/**
 	 * 图片加载和显示任务构造方法
@@ -112,18 +147,18 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		this.handler = handler;
 
 		configuration = engine.configuration;
-		downloader = configuration.downloader;
-		networkDeniedDownloader = configuration.networkDeniedDownloader;
-		slowNetworkDownloader = configuration.slowNetworkDownloader;
 		decoder = configuration.decoder;
 		uri = imageLoadingInfo.uri;
 		memoryCacheKey = imageLoadingInfo.memoryCacheKey;
 		imageAware = imageLoadingInfo.imageAware;
+		imageAwareId = imageAware.getId();
 		targetSize = imageLoadingInfo.targetSize;
 		options = imageLoadingInfo.options;
 		listener = imageLoadingInfo.listener;
 		progressListener = imageLoadingInfo.progressListener;
 		syncLoading = options.isSyncLoading();
+		sequence = engine.nextTaskSequence();
+		deadlineTime = options.hasDeadline() ? System.currentTimeMillis() + options.getDeadline() : 0;
 	}
 
 	/**
@@ -131,13 +166,118 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 */
 	@Override
 	public void run() {
-		//如果当前状态是暂停 当前任务直接返回
-		if (waitIfPaused()) return;
-		//如果当前状态需要等待  当前任务直接返回
-		if (delayIfNeed()) return;
+		try {
+			runStage();
+		} finally {
+			releaseHostSlot();
+		}
+	}
+
+	private void runStage() {
+		switch (stage) {
+			case DECODE:
+				loadAndDisplay();
+				return;
+			case PROCESS:
+				processAndDisplay(stagedBitmap);
+				return;
+		}
+		//引擎暂停中，异步任务进入等待队列并释放工作线程
+		if (!syncLoading && engine.holdIfPaused(this)) {
+			L.d(LOG_HELD_WHILE_PAUSED, memoryCacheKey);
+			return;
+		}
+		//如果当前状态是暂停或者需要等待  当前任务直接返回
+		if (waitIfPaused() || delayIfNeed()) {
+			engine.finishDisplayTask(this);
+			if (isTaskExpired()) {
+				fireTimeoutEvent();
+			}
+			return;
+		}
 
-		ReentrantLock loadFromUriLock = imageLoadingInfo.loadFromUriLock;
 		L.d(LOG_START_DISPLAY_IMAGE_TASK, memoryCacheKey);
+		//同一URI已经在加载中，当前任务作为订阅者等待加载结果，直接释放工作线程
+		if (!syncLoading && !engine.attachToInFlightLoad(this)) {
+			L.d(LOG_ATTACHED_TO_IN_FLIGHT_LOAD, memoryCacheKey);
+			return;
+		}
+		//分阶段流水线，网络下载完成后交给解码阶段
+		if (!syncLoading && engine.isStagedPipeline() && !runNetworkStage()) return;
+
+		loadAndDisplay();
+	}
+
+	/**
+	 * Downloads image to disk cache on network stage of staged pipeline and hands off the task to decode stage. If
+	 * image is cached on disk already or it can't be cached on disk then task continues loading on current thread.
+	 * 流水线网络阶段：下载图片到本地缓存，然后交给解码阶段
+	 *
+	 * @return <b>true</b> - if task should continue loading on current thread; <b>false</b> - if task was handed off to
+	 * decode stage or finished
+	 */
+	private boolean runNetworkStage() {
+		if (!options.isCacheOnDisk() || getImageFileOnDisk() != null) return true;
+
+		boolean handOff = false;
+		boolean finished = true;
+		ImageLoaderEngine.UriLock loadFromUriLock = engine.acquireLockForUri(uri);
+		loadFromUriLock.lock();
+		try {
+			checkTaskNotActual();
+			L.d(LOG_LOAD_IMAGE_FROM_NETWORK, memoryCacheKey);
+			if (tryCacheImageOnDisk()) {
+				File imageFile = configuration.diskCache.get(uri);
+				if (imageFile != null) {
+					engine.indexImageOnDisk(uri, imageFile);
+					setImageFileOnDisk(imageFile, true);
+					handOff = true;
+				}
+			}
+			checkTaskNotActual();
+			checkTaskInterrupted();
+			// If image wasn't cached on disk then it will be decoded from original URI on current thread
+			finished = false;
+		} catch (TaskCancelledException e) {
+			fireCancelEvent();
+		} catch (IllegalStateException e) {
+			fireFailEvent(FailType.NETWORK_DENIED, null);
+		} catch (IOException e) {
+			onIoError(e); // Failed download fails the attempt (see failsOnDownloadError())
+		} catch (Throwable e) {
+			L.e(e);
+			fireFailEvent(FailType.UNKNOWN, e);
+		} finally {
+			loadFromUriLock.unlock();
+			engine.releaseLockForUri(loadFromUriLock);
+			if (finished) {
+				engine.finishDisplayTask(this);
+				completeAttachedTasks();
+				if (retryDelay >= 0) {
+					scheduleRetry();
+				}
+			}
+		}
+		if (handOff) {
+			handOffToStage(PipelineStage.DECODE);
+			return false;
+		}
+		return !finished;
+	}
+
+	private void handOffToStage(PipelineStage stage) {
+		L.d(LOG_HAND_OFF_TO_STAGE, stage, memoryCacheKey);
+		this.stage = stage;
+		engine.submitToStage(this, stage);
+	}
+
+	/**
+	 * Loads bitmap (from memory cache, disk cache or network), pre-processes and caches it in memory. Then
+	 * post-processes and displays it or hands off it to process stage of staged pipeline.
+	 * 加载图片并且显示
+	 */
+	private void loadAndDisplay() {
+		ImageLoaderEngine.UriLock loadFromUriLock = engine.acquireLockForUri(uri);
 		if (loadFromUriLock.isLocked()) {
 			L.d(LOG_WAITING_FOR_IMAGE_LOADED, memoryCacheKey);
 		}
@@ -148,7 +288,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			//进行检查任务  判断当前要显示的引用对象是否已经被回收了
 			checkTaskNotActual();
             //先从缓存中获取图片
-			bmp = configuration.memoryCache.get(memoryCacheKey);
+			bmp = engine.getCachedBitmap(memoryCacheKey);
 			if (bmp == null || bmp.isRecycled()) {
 				//进行尝试获取加载图片（去文件中，文件中不存在去网络下载，然后缓存到文件）
 				bmp = tryLoadBitmap();
@@ -175,12 +315,17 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 				loadedFrom = LoadedFrom.MEMORY_CACHE;
 				L.d(LOG_GET_IMAGE_FROM_MEMORY_CACHE_AFTER_WAITING, memoryCacheKey);
 			}
+			loadedBitmap = bmp;
 
 			if (bmp != null && options.shouldPostProcess()) {
-				L.d(LOG_POSTPROCESS_IMAGE, memoryCacheKey);
-				bmp = options.getPostProcessor().process(bmp);
-				if (bmp == null) {
-					L.e(ERROR_POST_PROCESSOR_NULL, memoryCacheKey);
+				if (!syncLoading && engine.isStagedPipeline()) {
+					stagedBitmap = bmp;
+				} else {
+					L.d(LOG_POSTPROCESS_IMAGE, memoryCacheKey);
+					bmp = options.getPostProcessor().process(bmp);
+					if (bmp == null) {
+						L.e(ERROR_POST_PROCESSOR_NULL, memoryCacheKey);
+					}
 				}
 			}
 			checkTaskNotActual();
@@ -191,16 +336,104 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		} finally {
 			//任务取消锁
 			loadFromUriLock.unlock();
+			engine.releaseLockForUri(loadFromUriLock);
+			engine.finishDisplayTask(this);
+			if (!syncLoading) {
+				completeAttachedTasks();
+				if (retryDelay >= 0) {
+					scheduleRetry();
+				}
+			}
+		}
+		if (stagedBitmap != null) {
+			handOffToStage(PipelineStage.PROCESS);
+			return;
 		}
 		//封装图片显示任务对象
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, imageLoadingInfo, engine, loadedFrom);
+		DisplayBitmapTask displayBitmapTask = DisplayBitmapTask.obtain(bmp, imageLoadingInfo, engine, loadedFrom);
 		//进行任务运行
 		runTask(displayBitmapTask, syncLoading, handler, engine);
 	}
 
 	/**
-	 * @return <b>true</b> - if task should be interrupted; <b>false</b> - otherwise
+	 * Completes tasks which were attached to loading of current image URI while this task was loading it. Tasks for the
+	 * same memory cache key get loaded bitmap, tasks for other size variants are re-submitted and will decode image from
+	 * disk cache by themselves.
+	 * 完成订阅当前加载结果的任务
+	 */
+	private void completeAttachedTasks() {
+		List<LoadAndDisplayImageTask> attachedTasks = engine.detachInFlightLoad(uri);
+		if (attachedTasks == null) return;
+
+		for (LoadAndDisplayImageTask task : attachedTasks) {
+			if (loadedBitmap != null && task.canUseBitmapOf(this)) {
+				engine.finishDisplayTask(task);
+				task.completeFromAttachedLoad(loadedBitmap, loadedFrom);
+			} else if (retryDelay >= 0) {
+				// Subscribers wait for retry too and will be attached to retried load
+				engine.scheduleRetry(task, retryDelay);
+			} else if (failType != null && failType != FailType.OUT_OF_MEMORY && failType != FailType.TIMEOUT) {
+				engine.finishDisplayTask(task);
+				task.fireFailEvent(failType, failCause);
+			} else {
+				// Loading was cancelled or bitmap of another size is needed
+				engine.submit(task);
+			}
+		}
+	}
+
+	/**
+	 * Finishes task which was removed from queue of decode stage before it was run. Such task is the registered loader
+	 * of its image URI, so its in-flight load is detached and attached tasks are re-submitted.
+	 * 解码阶段排队中的任务被移除，释放订阅该URI加载结果的任务
+	 */
+	void onRemovedFromStageQueue() {
+		engine.finishDisplayTask(this);
+		completeAttachedTasks();
+	}
+
+	/** @return <b>true</b> - if this task can display bitmap loaded by incoming task; <b>false</b> - otherwise */
+	private boolean canUseBitmapOf(LoadAndDisplayImageTask task) {
+		return memoryCacheKey.equals(task.memoryCacheKey) && options.getPreProcessor() == task.options.getPreProcessor();
+	}
+
+	/** Post-processes and displays bitmap which was loaded by another task for the same image URI */
+	private void completeFromAttachedLoad(Bitmap bmp, LoadedFrom loadedFrom) {
+		this.loadedFrom = loadedFrom;
+		L.d(LOG_COMPLETE_FROM_IN_FLIGHT_LOAD, memoryCacheKey);
+		if (engine.isStagedPipeline() && options.shouldPostProcess()) {
+			stagedBitmap = bmp;
+			handOffToStage(PipelineStage.PROCESS);
+		} else {
+			processAndDisplay(bmp);
+		}
+	}
+
+	/** Post-processes (if needed) and displays loaded bitmap */
+	private void processAndDisplay(Bitmap bmp) {
+		stagedBitmap = null;
+		if (isTaskNotActual()) {
+			fireCancelEvent();
+			return;
+		}
+
+		if (options.shouldPostProcess()) {
+			L.d(LOG_POSTPROCESS_IMAGE, memoryCacheKey);
+			bmp = options.getPostProcessor().process(bmp);
+			if (bmp == null) {
+				L.e(ERROR_POST_PROCESSOR_NULL, memoryCacheKey);
+			}
+		}
+		DisplayBitmapTask displayBitmapTask = DisplayBitmapTask.obtain(bmp, imageLoadingInfo, engine, loadedFrom);
+		runTask(displayBitmapTask, syncLoading, handler, engine);
+	}
+
+	/**
+	 * Waits for engine resume. Only synchronous tasks can wait here, asynchronous tasks are held by engine without
+	 * occupying thread.
 	 * 判断是否需要等待暂时
+	 *
+	 * @return <b>true</b> - if task should be interrupted; <b>false</b> - otherwise
 	 */
 	private boolean waitIfPaused() {
 		AtomicBoolean pause = engine.getPause();
@@ -226,7 +459,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 * 判断是否需要延时
 	 */
 	private boolean delayIfNeed() {
-		if (options.shouldDelayBeforeLoading()) {
+		if (shouldDelayBeforeLoading()) {
 			L.d(LOG_DELAY_BEFORE_LOADING, options.getDelayBeforeLoading(), memoryCacheKey);
 			try {
 				Thread.sleep(options.getDelayBeforeLoading());
@@ -248,11 +481,11 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		Bitmap bitmap = null;
 		try {
 			//从本地文件缓存中获取图片
-			File imageFile = configuration.diskCache.get(uri);
-			if (imageFile != null && imageFile.exists() && imageFile.length() > 0) {
+			File imageFile = getImageFileOnDisk();
+			if (imageFile != null) {
 				L.d(LOG_LOAD_IMAGE_FROM_DISK_CACHE, memoryCacheKey);
-				//文件存在设置图片来源
-				loadedFrom = LoadedFrom.DISC_CACHE;
+				//文件存在设置图片来源 (图片可能刚在流水线网络阶段下载)
+				loadedFrom = diskCachingTried ? LoadedFrom.NETWORK : LoadedFrom.DISC_CACHE;
                 //检查引用是否已经被回收了
 				checkTaskNotActual();
                 //图片解码，文件转换成bitmap对象
@@ -264,10 +497,11 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 				loadedFrom = LoadedFrom.NETWORK;
 				String imageUriForDecoding = uri;
 				//判断图片可以本地文件系统缓存以及尝试本地文本系统缓存(网络下载图片,下载成功图片缓存本地文件系统)
-				if (options.isCacheOnDisk() && tryCacheImageOnDisk()) {
+				if (options.isCacheOnDisk() && !diskCachingTried && tryCacheImageOnDisk()) {
 					//从本地文件系统缓存中获取图片
 					imageFile = configuration.diskCache.get(uri);
 					if (imageFile != null) {
+						engine.indexImageOnDisk(uri, imageFile);
 						imageUriForDecoding = Scheme.FILE.wrap(imageFile.getAbsolutePath());
 					}
 				}
@@ -278,16 +512,18 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 				if (bitmap == null || bitmap.getWidth() <= 0 || bitmap.getHeight() <= 0) {
 					//回调图片解码失败
+					engine.rememberFailure(uri, FailType.DECODING_ERROR);
 					fireFailEvent(FailType.DECODING_ERROR, null);
+					return bitmap;
 				}
 			}
+			engine.forgetFailure(uri);
 		} catch (IllegalStateException e) {
 			fireFailEvent(FailType.NETWORK_DENIED, null);
 		} catch (TaskCancelledException e) {
 			throw e;
 		} catch (IOException e) {
-			L.e(e);
-			fireFailEvent(FailType.IO_ERROR, e);
+			if (onIoError(e)) return null; // task will be re-submitted after it's finished
 		} catch (OutOfMemoryError e) {
 			L.e(e);
 			fireFailEvent(FailType.OUT_OF_MEMORY, e);
@@ -299,6 +535,73 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return bitmap;
 	}
 
+	/**
+	 * Handles failed loading: retry is scheduled or fail event is fired. Failure because of open circuit of image host
+	 * isn't remembered as failure of image URI, it's failure of host and URI will be tried again when circuit is closed.
+	 *
+	 * @return <b>true</b> - if task will be re-submitted; <b>false</b> - if task failed
+	 */
+	private boolean onIoError(IOException e) {
+		L.e(e);
+		if (shouldRetry(e)) return true;
+		if (!(e instanceof CircuitBreakerImageDownloader.CircuitOpenException)) {
+			engine.rememberFailure(uri, FailType.IO_ERROR);
+		}
+		fireFailEvent(FailType.IO_ERROR, e);
+		return false;
+	}
+
+	/**
+	 * Asks configured retry policy whether failed download should be retried. Retry isn't made if it would be made after
+	 * task deadline.
+	 *
+	 * @return <b>true</b> - if task should be re-submitted; <b>false</b> - if task failed
+	 */
+	private boolean shouldRetry(IOException e) {
+		if (syncLoading || configuration.retryPolicy == null) return false;
+		long delay = configuration.retryPolicy.getRetryDelay(uri, retryAttempts + 1, e);
+		if (delay < 0) return false;
+		if (deadlineTime > 0 && System.currentTimeMillis() + delay >= deadlineTime) return false;
+		retryAttempts++;
+		retryDelay = delay;
+		L.d(LOG_RETRY_DOWNLOAD, retryAttempts, delay, memoryCacheKey);
+		return true;
+	}
+
+	/** Resets state of finished loading and schedules re-submission of task */
+	private void scheduleRetry() {
+		long delay = retryDelay;
+		retryDelay = -1;
+		stage = PipelineStage.NETWORK;
+		diskCachingTried = false;
+		engine.scheduleRetry(this, delay);
+	}
+
+	/**
+	 * Returns image file from disk cache. File system is checked only if it wasn't checked by engine during task
+	 * distribution.
+	 * 获取本地文件系统缓存的图片文件
+	 *
+	 * @return Image file or <b>null</b> if image isn't cached on disk
+	 */
+	private File getImageFileOnDisk() {
+		if (!diskCacheLookedUp) {
+			return engine.findImageOnDisk(uri);
+		}
+		File imageFile = imageFileOnDisk;
+		boolean verified = imageFileOnDiskVerified;
+		if (imageFile == null) {
+			// Image could be cached by another task after engine's check
+			imageFile = engine.getIndexedImageOnDisk(uri);
+			verified = false;
+		}
+		if (imageFile != null && !verified) {
+			// Index hit didn't go through disk cache, so access order of disk cache (e.g. LRU) is updated here
+			imageFile = engine.findImageOnDisk(uri);
+		}
+		return imageFile;
+	}
+
 	/**
 	 * 根据图片资源地址进行解码图片
 	 * @param imageUri   图片资源地址
@@ -308,90 +611,38 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	private Bitmap decodeImage(String imageUri) throws IOException {
 		ViewScaleType viewScaleType = imageAware.getScaleType();
 		ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey, imageUri, uri, targetSize, viewScaleType,
-				getDownloader(), options);
+				engine.getDownloader(), options, configuration.bitmapPool);
 		return decoder.decode(decodingInfo);
 	}
 
 	/**
 	 *
  	 * 图片下载 并且保存本地，图片压缩
-	 * @return <b>true</b> - if image was downloaded successfully; <b>false</b> - otherwise
+	 * @return <b>true</b> - if image was downloaded successfully; <b>false</b> - otherwise (then image is decoded from
+	 * original URI)
+	 * @throws IOException if download failed and failed download should fail loading attempt (see
+	 *                     {@link #failsOnDownloadError()}), image isn't downloaded again for decoding then
 	 */
-	private boolean tryCacheImageOnDisk() throws TaskCancelledException {
+	private boolean tryCacheImageOnDisk() throws IOException {
 		L.d(LOG_CACHE_IMAGE_ON_DISK, memoryCacheKey);
-		boolean loaded;
+		diskCachingTried = true;
 		try {
-			//图片下载并且保存本地
-			loaded = downloadImage();
-			if (loaded) {
-				int width = configuration.maxImageWidthForDiskCache;
-				int height = configuration.maxImageHeightForDiskCache;
-				if (width > 0 || height > 0) {
-					L.d(LOG_RESIZE_CACHED_IMAGE_FILE, memoryCacheKey);
-					//根据尺寸大小配置 进行图片缩放和保存
-					resizeAndSaveImage(width, height); // TODO : process boolean result
-				}
-			}
+			//图片下载并且保存本地，根据尺寸大小配置进行图片缩放和保存
+			return engine.getDiskCacheWriter().cacheImageOnDisk(uri, options, this);
 		} catch (IOException e) {
+			if (failsOnDownloadError()) throw e;
 			L.e(e);
-			loaded = false;
-		}
-		return loaded;
-	}
-
-	/**
-	 * 图片通过网络下载,并且下载成功之后 进行本地文件系统缓存
-	 * @return         下载并且缓存本地文件系统成功返回 true，否则返回false
-	 * @throws IOException
-	 */
-	private boolean downloadImage() throws IOException {
-		InputStream is = getDownloader().getStream(uri, options.getExtraForDownloader());
-		if (is == null) {
-			L.e(ERROR_NO_IMAGE_STREAM, memoryCacheKey);
 			return false;
-		} else {
-			try {
-				//进行图片资源缓存到本地文件系统中
-				return configuration.diskCache.save(uri, is, this);
-			} finally {
-				IoUtils.closeSilently(is);
-			}
 		}
 	}
 
 	/**
-	 * Decodes image file into Bitmap, resize it and save it back
-	 * 解码图片 进行图片尺寸修改，然后保存
+	 * Failed download fails loading attempt if retry policy or circuit breaker is configured: retry policy decides about
+	 * next attempt and circuit breaker counts one failure per attempt. Otherwise image is decoded from original URI
+	 * after failed download (i.e. download is tried once more).
 	 */
-	private boolean resizeAndSaveImage(int maxWidth, int maxHeight) throws IOException {
-		// Decode image file, compress and re-save it
-		boolean saved = false;
-		File targetFile = configuration.diskCache.get(uri);
-		if (targetFile != null && targetFile.exists()) {
-			//构建图片尺寸size对象
-			ImageSize targetImageSize = new ImageSize(maxWidth, maxHeight);
-			//图片显示配置参数构建
-			DisplayImageOptions specialOptions = new DisplayImageOptions.Builder().cloneFrom(options)
-					.imageScaleType(ImageScaleType.IN_SAMPLE_INT).build();
-			ImageDecodingInfo decodingInfo = new ImageDecodingInfo(memoryCacheKey,
-					Scheme.FILE.wrap(targetFile.getAbsolutePath()), uri, targetImageSize, ViewScaleType.FIT_INSIDE,
-					getDownloader(), specialOptions);
-			//获取解码之后的图片
-			Bitmap bmp = decoder.decode(decodingInfo);
-			if (bmp != null && configuration.processorForDiskCache != null) {
-				L.d(LOG_PROCESS_IMAGE_BEFORE_CACHE_ON_DISK, memoryCacheKey);
-				bmp = configuration.processorForDiskCache.process(bmp);
-				if (bmp == null) {
-					L.e(ERROR_PROCESSOR_FOR_DISK_CACHE_NULL, memoryCacheKey);
-				}
-			}
-			if (bmp != null) {
-				//图片重新保存本地文件系统
-				saved = configuration.diskCache.save(uri, bmp);
-				bmp.recycle();
-			}
-		}
-		return saved;
+	private boolean failsOnDownloadError() {
+		return configuration.retryPolicy != null || configuration.downloader instanceof CircuitBreakerImageDownloader;
 	}
 
 	/**
@@ -413,34 +664,66 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 * @return
 	 */
 	private boolean fireProgressEvent(final int current, final int total) {
-		if (isTaskInterrupted() || isTaskNotActual()) return false;
-		if (progressListener != null) {
-			Runnable r = new Runnable() {
-				@Override
-				public void run() {
-					//进行回调图片加载进度信息
-					progressListener.onProgressUpdate(uri, imageAware.getWrappedView(), current, total);
+		if (isTaskInterrupted()) return false;
+		// Continue loading for attached tasks even if this task is cancelled or isn't actual anymore
+		if (isTaskNotActual()) return engine.hasInFlightSubscribers(uri);
+		if (progressListener != null && shouldFireProgressEvent(current, total)) {
+			pendingProgress = ((long) current << 32) | (total & 0xFFFFFFFFL);
+			// Only one progress message per task is pending, it delivers the latest values
+			if (progressMessagePending.compareAndSet(false, true)) {
+				if (progressUpdater == null) {
+					progressUpdater = new Runnable() {
+						@Override
+						public void run() {
+							progressMessagePending.set(false);
+							long progress = pendingProgress;
+							//进行回调图片加载进度信息
+							progressListener.onProgressUpdate(uri, imageAware.getWrappedView(), (int) (progress >>> 32),
+									(int) progress);
+						}
+					};
 				}
-			};
-			//执行任务
-			runTask(r, false, handler, engine);
+				//执行任务
+				runTask(progressUpdater, false, handler, engine);
+			}
 		}
 		return true;
 	}
 
+	/**
+	 * Checks whether progress event should be fired according to
+	 * {@linkplain ImageLoaderConfiguration.Builder#progressUpdateInterval(int) minimum interval} and
+	 * {@linkplain ImageLoaderConfiguration.Builder#progressUpdateStep(int) minimum step}. The final event is always fired.
+	 */
+	private boolean shouldFireProgressEvent(int current, int total) {
+		long now = System.currentTimeMillis();
+		int percent = total > 0 ? (int) (100L * current / total) : 0;
+		if (current < total) {
+			if (now - lastProgressTime < configuration.progressUpdateInterval) return false;
+			if (lastProgressPercent >= 0 && percent - lastProgressPercent < configuration.progressUpdateStep) return false;
+		}
+		lastProgressTime = now;
+		lastProgressPercent = percent;
+		return true;
+	}
+
 	/**
 	 * 图片加载失败事件处理分发
 	 * @param failType
 	 * @param failCause
 	 */
 	private void fireFailEvent(final FailType failType, final Throwable failCause) {
-		if (syncLoading || isTaskInterrupted() || isTaskNotActual()) return;
+		this.failType = failType;
+		this.failCause = failCause;
+		if (syncLoading || isTaskInterrupted() || isTargetNotActual()) return;
+		// Fail and cancel callbacks aren't pooled: they are created only when loading doesn't end with display
 		Runnable r = new Runnable() {
 			@Override
 			public void run() {
 				if (options.shouldShowImageOnFail()) {
 					//存在图片加载失败的占位图片配置，进行设置
 					imageAware.setImageDrawable(options.getImageOnFail(configuration.resources));
+					engine.onBitmapUnbound(imageAware);
 				}
 				//进行回调图片加载失败方法
 				listener.onLoadingFailed(uri, imageAware.getWrappedView(), new FailReason(failType, failCause));
@@ -454,6 +737,11 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 * 取消事件处理
 	 */
 	private void fireCancelEvent() {
+		// Task which is stopped because of its deadline fails with TIMEOUT reason
+		if (isTaskExpired() && !isTargetNotActual()) {
+			fireTimeoutEvent();
+			return;
+		}
 		if (syncLoading || isTaskInterrupted()) return;
 		Runnable r = new Runnable() {
 			@Override
@@ -468,30 +756,16 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		runTask(r, false, handler, engine);
 	}
 
-	/**
-	 * 获取下载加载器
-	 * @return
-	 */
-	private ImageDownloader getDownloader() {
-		ImageDownloader d;
-		if (engine.isNetworkDenied()) {
-			d = networkDeniedDownloader;
-		} else if (engine.isSlowNetwork()) {
-			d = slowNetworkDownloader;
-		} else {
-			d = downloader;
-		}
-		return d;
-	}
-
 	/**
 	 * @throws TaskCancelledException if task is not actual (target ImageAware is collected by GC or the image URI of
 	 *                                this task doesn't match to image URI which is actual for current ImageAware at
 	 *                                this moment)
 	 */
 	private void checkTaskNotActual() throws TaskCancelledException {
+		checkTaskCancelled();
 		checkViewCollected();
 		checkViewReused();
+		checkTaskExpired();
 	}
 
 	/**
@@ -499,7 +773,47 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 	 * doesn't match to image URI which is actual for current ImageAware at this moment)); <b>false</b> - otherwise
 	 */
 	private boolean isTaskNotActual() {
-		return isViewCollected() || isViewReused();
+		return isTargetNotActual() || isTaskExpired();
+	}
+
+	/**
+	 * @return <b>true</b> - if task was cancelled or target ImageAware is collected by GC or reused for another image;
+	 * <b>false</b> - otherwise
+	 */
+	private boolean isTargetNotActual() {
+		return isTaskCancelled() || isViewCollected() || isViewReused();
+	}
+
+	/** @throws TaskCancelledException if deadline of task is passed */
+	private void checkTaskExpired() throws TaskCancelledException {
+		if (isTaskExpired()) {
+			throw new TaskCancelledException();
+		}
+	}
+
+	/** @return <b>true</b> - if deadline of task is passed; <b>false</b> - otherwise */
+	private boolean isTaskExpired() {
+		if (deadlineTime > 0 && System.currentTimeMillis() >= deadlineTime) {
+			L.d(LOG_TASK_EXPIRED, memoryCacheKey);
+			return true;
+		}
+		return false;
+	}
+
+	/** @throws TaskCancelledException if task was cancelled by engine */
+	private void checkTaskCancelled() throws TaskCancelledException {
+		if (isTaskCancelled()) {
+			throw new TaskCancelledException();
+		}
+	}
+
+	/** @return <b>true</b> - if task was cancelled by engine; <b>false</b> - otherwise */
+	private boolean isTaskCancelled() {
+		if (cancelled) {
+			L.d(LOG_TASK_CANCELLED, memoryCacheKey);
+			return true;
+		}
+		return false;
 	}
 
 	/** @throws TaskCancelledException if target ImageAware is collected */
@@ -530,7 +844,7 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 
 	/** @return <b>true</b> - if current ImageAware is reused for displaying another image; <b>false</b> - otherwise */
 	private boolean isViewReused() {
-		String currentCacheKey = engine.getLoadingUriForView(imageAware);
+		String currentCacheKey = engine.getLoadingCacheKeyForImageAware(imageAwareId);
 		// Check whether memory cache key (image URI) for current ImageAware is actual.
 		// If ImageAware is reused for another task then current task should be cancelled.
 		boolean imageAwareWasReused = !memoryCacheKey.equals(currentCacheKey);
@@ -561,6 +875,140 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 		return uri;
 	}
 
+	String getMemoryCacheKey() {
+		return memoryCacheKey;
+	}
+
+	int getImageAwareId() {
+		return imageAwareId;
+	}
+
+	/**
+	 * Cancels task. Queued task won't be executed, running task stops image downloading (if it's not almost completed)
+	 * and fires cancel event.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return <b>true</b> - if task is not actual anymore (cancelled, or target ImageAware is collected or reused);
+	 * <b>false</b> - otherwise
+	 */
+	boolean isNotActual() {
+		return isTaskNotActual();
+	}
+
+	/** @return <b>true</b> - if task should wait before loading and this delay wasn't scheduled yet */
+	boolean shouldDelayBeforeLoading() {
+		return options.shouldDelayBeforeLoading() && !delayScheduled;
+	}
+
+	int getDelayBeforeLoading() {
+		return options.getDelayBeforeLoading();
+	}
+
+	/** Marks that delay before loading is scheduled by engine, so task won't sleep on worker thread */
+	void onDelayScheduled() {
+		delayScheduled = true;
+	}
+
+	/** @return <b>true</b> - if task has deadline and engine didn't schedule it yet; <b>false</b> - otherwise */
+	boolean shouldScheduleDeadline() {
+		return deadlineTime > 0 && !syncLoading && deadlineFuture == null;
+	}
+
+	void onDeadlineScheduled(ScheduledFuture<?> future) {
+		deadlineFuture = future;
+	}
+
+	/** @return Scheduled expiration of task or <b>null</b> if it isn't scheduled. Expiration is forgotten by task. */
+	ScheduledFuture<?> takeDeadlineFuture() {
+		ScheduledFuture<?> future = deadlineFuture;
+		deadlineFuture = null;
+		return future;
+	}
+
+	/** @return Time (in milliseconds) left till deadline of task */
+	long getTimeToDeadline() {
+		return Math.max(0, deadlineTime - System.currentTimeMillis());
+	}
+
+	/** @return <b>true</b> - if deadline of task is passed; <b>false</b> - otherwise */
+	boolean isExpired() {
+		return isTaskExpired();
+	}
+
+	/** Cancels task which was dropped from full task queue */
+	void onDroppedFromQueue() {
+		L.d(LOG_TASK_DROPPED, memoryCacheKey);
+		releaseHostSlot();
+		engine.finishDisplayTask(this);
+		fireCancelEvent();
+	}
+
+	void setHost(String host) {
+		this.host = host;
+	}
+
+	/** @return Host of network image or <b>null</b> if task isn't limited by host */
+	String getHost() {
+		return host;
+	}
+
+	/** Registers that task was admitted to task executor by host limit */
+	void onHostSlotAcquired() {
+		hostSlots.incrementAndGet();
+	}
+
+	/** Releases host slot of task (if task holds it) so waiting tasks of hosts can be executed */
+	void releaseHostSlot() {
+		int slots;
+		do {
+			slots = hostSlots.get();
+			if (slots == 0) return;
+		} while (!hostSlots.compareAndSet(slots, slots - 1));
+		engine.releaseHostSlot(host);
+	}
+
+	/** Fires {@link FailType#TIMEOUT TIMEOUT} fail event if target ImageAware is still actual */
+	void fireTimeoutEvent() {
+		fireFailEvent(FailType.TIMEOUT, null);
+	}
+
+	/**
+	 * Sets result of disk cache lookup which was made before task execution, so task doesn't need to check file
+	 * system again.
+	 *
+	 * @param imageFile null-ok; Image file in disk cache
+	 * @param verified  <b>true</b> - if existence of image file was checked on file system; <b>false</b> - if image
+	 *                  file was taken from disk cache index
+	 */
+	void setImageFileOnDisk(File imageFile, boolean verified) {
+		imageFileOnDisk = imageFile;
+		imageFileOnDiskVerified = verified;
+		diskCacheLookedUp = true;
+	}
+
+	/** @return <b>true</b> - if image file of task was found in disk cache before task was run */
+	boolean isImageCachedOnDisk() {
+		return imageFileOnDisk != null;
+	}
+
+	@Override
+	public int getPriority() {
+		return options.getPriority();
+	}
+
+	@Override
+	public long getSequence() {
+		return sequence;
+	}
+
 	/**
 	 * 任务运行方法
 	 * @param r           任务运行线程
@@ -574,9 +1022,14 @@ final class LoadAndDisplayImageTask implements Runnable, IoUtils.CopyListener {
 			r.run();
 		} else if (handler == null) {
 			engine.fireCallback(r);
-		} else {
-			//任务通过Handler分发到主线程执行
-			handler.post(r);
+		} else if (engine.isDisplayBatched()) {
+			// 同一Looper的回调按帧批量执行，保持先后顺序
+			if (!engine.postToDisplayBatch(r, handler)) {
+				engine.discardTask(r);
+			}
+		} else if (!handler.post(r)) {
+			//任务通过Handler分发到主线程执行，Looper已退出时任务不会执行
+			engine.discardTask(r);
 		}
 	}
 
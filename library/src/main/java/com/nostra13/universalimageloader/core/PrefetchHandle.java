@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
+import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片预加载句柄，用于查询进度以及取消预加载
+ * Handle of bulk image prefetching. Allows to track prefetching progress and to cancel prefetching.
+ *
+ * @see ImageLoader#prefetch(java.util.Collection, com.nostra13.universalimageloader.core.assist.ImageSize,
+ * com.nostra13.universalimageloader.core.assist.PrefetchLevel)
+ */
+public final class PrefetchHandle {
+
+	private final ImageLoaderEngine engine;
+	private final int totalCount;
+	private final AtomicInteger completedCount = new AtomicInteger();
+	private final AtomicInteger failedCount = new AtomicInteger();
+	private volatile boolean cancelled;
+
+	/*未完成的预加载任务，完成后移除*/
+	private final Set<PrefetchTask> tasks = new HashSet<PrefetchTask>();
+	private final Set<MemoryPrefetch> memoryPrefetches = new HashSet<MemoryPrefetch>();
+
+	PrefetchHandle(ImageLoaderEngine engine, int totalCount) {
+		this.engine = engine;
+		this.totalCount = totalCount;
+	}
+
+	/** @return Number of images requested for prefetching */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	/** @return Number of successfully prefetched images */
+	public int getCompletedCount() {
+		return completedCount.get();
+	}
+
+	/** @return Number of images which weren't prefetched because of error or cancellation */
+	public int getFailedCount() {
+		return failedCount.get();
+	}
+
+	/** @return <b>true</b> - if all images are processed (successfully or not); <b>false</b> - otherwise */
+	public boolean isDone() {
+		return completedCount.get() + failedCount.get() >= totalCount;
+	}
+
+	/** @return <b>true</b> - if prefetching was {@linkplain #cancel() cancelled}; <b>false</b> - otherwise */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancels prefetching. Queued prefetch tasks are removed from execution queue, running downloads are interrupted.
+	 * Images which are already prefetched stay in caches. All images which aren't prefetched yet are counted as failed,
+	 * so prefetching {@linkplain #isDone() is done} after cancel.
+	 */
+	public void cancel() {
+		cancelled = true;
+		List<PrefetchTask> cancelledTasks;
+		synchronized (tasks) {
+			cancelledTasks = new ArrayList<PrefetchTask>(tasks);
+			tasks.clear();
+		}
+		for (PrefetchTask task : cancelledTasks) {
+			engine.cancelPrefetchTask(task);
+			task.onPrefetched(false);
+		}
+		List<MemoryPrefetch> cancelledPrefetches;
+		synchronized (memoryPrefetches) {
+			cancelledPrefetches = new ArrayList<MemoryPrefetch>(memoryPrefetches);
+			memoryPrefetches.clear();
+		}
+		for (MemoryPrefetch prefetch : cancelledPrefetches) {
+			engine.cancelDisplayTaskFor(prefetch.imageAware);
+			prefetch.onPrefetched(false);
+		}
+	}
+
+	void addTask(PrefetchTask task) {
+		synchronized (tasks) {
+			tasks.add(task);
+		}
+	}
+
+	/**
+	 * Registers prefetching of image into memory cache.
+	 *
+	 * @return Listener which counts result of prefetching
+	 */
+	ImageLoadingListener addImageAware(ImageAware imageAware) {
+		MemoryPrefetch prefetch = new MemoryPrefetch(imageAware);
+		synchronized (memoryPrefetches) {
+			memoryPrefetches.add(prefetch);
+		}
+		return prefetch;
+	}
+
+	/** @return Number of images which are prefetching at this moment */
+	int getPendingCount() {
+		int count;
+		synchronized (tasks) {
+			count = tasks.size();
+		}
+		synchronized (memoryPrefetches) {
+			count += memoryPrefetches.size();
+		}
+		return count;
+	}
+
+	/** Counts result of finished prefetch task and forgets the task */
+	void onTaskFinished(PrefetchTask task, boolean successful) {
+		synchronized (tasks) {
+			tasks.remove(task);
+		}
+		onImagePrefetched(successful);
+	}
+
+	void onImagePrefetched(boolean successful) {
+		if (successful) {
+			completedCount.incrementAndGet();
+		} else {
+			failedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * 内存级别预加载的监听器，每张图片只计数一次
+	 * Listener of prefetching of one image into memory cache. Image is counted only once (image which was counted on
+	 * cancel isn't counted again by callback of its running task).
+	 */
+	private final class MemoryPrefetch extends SimpleImageLoadingListener {
+
+		final ImageAware imageAware;
+		private final AtomicBoolean counted = new AtomicBoolean(false);
+
+		MemoryPrefetch(ImageAware imageAware) {
+			this.imageAware = imageAware;
+		}
+
+		@Override
+		public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
+			onPrefetched(true);
+		}
+
+		@Override
+		public void onLoadingFailed(String imageUri, View view, FailReason failReason) {
+			onPrefetched(false);
+		}
+
+		@Override
+		public void onLoadingCancelled(String imageUri, View view) {
+			onPrefetched(false);
+		}
+
+		void onPrefetched(boolean successful) {
+			if (counted.compareAndSet(false, true)) {
+				synchronized (memoryPrefetches) {
+					memoryPrefetches.remove(this);
+				}
+				onImagePrefetched(successful);
+			}
+		}
+	}
+}
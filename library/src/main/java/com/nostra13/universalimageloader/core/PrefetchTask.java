@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.utils.IoUtils;
+import com.nostra13.universalimageloader.utils.L;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 图片预加载任务，只将图片下载到本地文件系统缓存，不进行解码
+ * Presents prefetch task. Downloads image into disk cache without decoding it to {@link Bitmap}. Task is executed with
+ * the lowest priority: only by idle worker of task executor and only if host of image has free slot.
+ *
+ * @see ImageLoader#prefetch(java.util.Collection, ImageSize, com.nostra13.universalimageloader.core.assist.PrefetchLevel)
+ */
+final class PrefetchTask implements PrioritizedTask, IoUtils.CopyListener {
+
+	private static final String LOG_PREFETCH_IMAGE = "Prefetch image on disk [%s]";
+	private static final String LOG_IMAGE_ALREADY_LOADING = "Image is already loading. Prefetch waits for it [%s]";
+	private static final String LOG_IMAGE_ALREADY_CACHED = "Image is already cached on disk [%s]";
+
+	private final ImageLoaderEngine engine;
+	private final ImageLoaderConfiguration configuration;
+	private final String uri;
+	private final DisplayImageOptions options;
+	private final PrefetchHandle handle;
+	private final long sequence;
+	private final AtomicBoolean counted = new AtomicBoolean(false);
+	// Host which slot is held by task (see ImageLoaderConfiguration.maxConnectionsPerHost)
+	private final AtomicReference<String> hostSlot = new AtomicReference<String>();
+
+	PrefetchTask(ImageLoaderEngine engine, String uri, DisplayImageOptions options, PrefetchHandle handle) {
+		this.engine = engine;
+		this.configuration = engine.configuration;
+		this.uri = uri;
+		this.options = options;
+		this.handle = handle;
+		sequence = engine.nextTaskSequence();
+	}
+
+	@Override
+	public void run() {
+		try {
+			prefetch();
+		} finally {
+			releaseHostSlot();
+		}
+	}
+
+	private void prefetch() {
+		if (handle.isCancelled()) {
+			onPrefetched(false);
+			return;
+		}
+		// Task is run again when display task which is loading the image finishes, then result of loading is checked
+		if (engine.attachToInFlightLoad(this)) {
+			L.d(LOG_IMAGE_ALREADY_LOADING, uri);
+			return;
+		}
+
+		boolean prefetched = false;
+		ImageLoaderEngine.UriLock loadFromUriLock = engine.acquireLockForUri(uri);
+		loadFromUriLock.lock();
+		try {
+			if (engine.findImageOnDisk(uri) != null) {
+				L.d(LOG_IMAGE_ALREADY_CACHED, uri);
+				prefetched = true;
+			} else {
+				L.d(LOG_PREFETCH_IMAGE, uri);
+				if (engine.getDiskCacheWriter().cacheImageOnDisk(uri, options, this)) {
+					File imageFile = configuration.diskCache.get(uri);
+					if (imageFile != null) {
+						engine.indexImageOnDisk(uri, imageFile);
+						prefetched = true;
+					}
+				}
+			}
+		} catch (IllegalStateException e) {
+			// network downloads are denied
+		} catch (IOException e) {
+			L.e(e);
+		} catch (Throwable e) {
+			L.e(e);
+		} finally {
+			loadFromUriLock.unlock();
+			engine.releaseLockForUri(loadFromUriLock);
+			onPrefetched(prefetched);
+		}
+	}
+
+	/** Counts image which was dropped from full task queue as not prefetched */
+	void onDroppedFromQueue() {
+		releaseHostSlot();
+		onPrefetched(false);
+	}
+
+	String getUri() {
+		return uri;
+	}
+
+	/** Registers that task was admitted to task executor by host limit */
+	void onHostSlotAcquired(String host) {
+		hostSlot.set(host);
+	}
+
+	/** Releases host slot of task (if task holds it) */
+	void releaseHostSlot() {
+		String host = hostSlot.getAndSet(null);
+		if (host != null) {
+			engine.releaseHostSlot(host);
+		}
+	}
+
+	/**
+	 * Counts result of prefetching in handle. Image is counted only once, so image which was counted as failed on
+	 * {@linkplain PrefetchHandle#cancel() cancel} isn't counted again when its running task finishes.
+	 */
+	void onPrefetched(boolean successful) {
+		if (counted.compareAndSet(false, true)) {
+			handle.onTaskFinished(this, successful);
+		}
+	}
+
+	@Override
+	public boolean onBytesCopied(int current, int total) {
+		return !handle.isCancelled() && !Thread.currentThread().isInterrupted();
+	}
+
+	/** Prefetching has the lowest priority */
+	@Override
+	public int getPriority() {
+		return ImageLoaderEngine.PREFETCH_PRIORITY;
+	}
+
+	@Override
+	public long getSequence() {
+		return sequence;
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
+
+import java.util.Comparator;
+
+/**
+ * 带有优先级的任务
+ * Task which can be ordered in {@linkplain QueueProcessingType#PRIORITY priority} queue of task executor.
+ *
+ * @see DisplayImageOptions.Builder#priority(int)
+ */
+interface PrioritizedTask extends Runnable {
+
+	/** @return Task priority. Tasks with higher priority are executed first. */
+	int getPriority();
+
+	/** @return Sequence number of task. Among tasks with equal priority the newer task (bigger number) is executed first. */
+	long getSequence();
+
+	/**
+	 * Orders tasks by priority first and then by recency. Tasks which aren't {@link PrioritizedTask} are considered as
+	 * the oldest tasks with default priority.
+	 */
+	class PriorityComparator implements Comparator<Runnable> {
+
+		@Override
+		public int compare(Runnable lhs, Runnable rhs) {
+			int lhsPriority = lhs instanceof PrioritizedTask ? ((PrioritizedTask) lhs).getPriority() : 0;
+			int rhsPriority = rhs instanceof PrioritizedTask ? ((PrioritizedTask) rhs).getPriority() : 0;
+			if (lhsPriority != rhsPriority) {
+				return lhsPriority > rhsPriority ? -1 : 1;
+			}
+			long lhsSequence = lhs instanceof PrioritizedTask ? ((PrioritizedTask) lhs).getSequence() : 0;
+			long rhsSequence = rhs instanceof PrioritizedTask ? ((PrioritizedTask) rhs).getSequence() : 0;
+			if (lhsSequence != rhsSequence) {
+				return lhsSequence > rhsSequence ? -1 : 1;
+			}
+			return 0;
+		}
+	}
+}
@@ -30,15 +30,17 @@ import com.nostra13.universalimageloader.utils.L;
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.8.0
  */
-final class ProcessAndDisplayImageTask implements Runnable {
+final class ProcessAndDisplayImageTask implements PrioritizedTask {
 
 	private static final String LOG_POSTPROCESS_IMAGE = "PostProcess image before displaying [%s]";
+	private static final String LOG_TASK_DROPPED = "Task queue is full. The oldest task is dropped [%s]";
     /*ImageLoader引擎*/
 	private final ImageLoaderEngine engine;
 	private final Bitmap bitmap;
 	/*ImageLoader信息封装对象*/
 	private final ImageLoadingInfo imageLoadingInfo;
 	private final Handler handler;
+	private final long sequence;
 
 	/**
 	 * 图片处理显示任务构造器
@@ -53,6 +55,8 @@ final class ProcessAndDisplayImageTask implements Runnable {
 		this.bitmap = bitmap;
 		this.imageLoadingInfo = imageLoadingInfo;
 		this.handler = handler;
+		sequence = engine.nextTaskSequence();
+		engine.retainBitmap(bitmap); // bitmap mustn't be reused while it waits for processing
 	}
 
 	@Override
@@ -60,11 +64,45 @@ final class ProcessAndDisplayImageTask implements Runnable {
 		L.d(LOG_POSTPROCESS_IMAGE, imageLoadingInfo.memoryCacheKey);
         //获取图片处理器 然后取得加载的图片
 		BitmapProcessor processor = imageLoadingInfo.options.getPostProcessor();
-		Bitmap processedBitmap = processor.process(bitmap);
-		//封装图片显示任务   其中图片来源设置成-来自内存缓存
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(processedBitmap, imageLoadingInfo, engine,
-				LoadedFrom.MEMORY_CACHE);
+		DisplayBitmapTask displayBitmapTask;
+		try {
+			Bitmap processedBitmap = processor.process(bitmap);
+			//封装图片显示任务   其中图片来源设置成-来自内存缓存
+			displayBitmapTask = DisplayBitmapTask.obtain(processedBitmap, imageLoadingInfo, engine,
+					LoadedFrom.MEMORY_CACHE);
+		} finally {
+			engine.releaseBitmap(bitmap);
+		}
 		//执行任务
 		LoadAndDisplayImageTask.runTask(displayBitmapTask, imageLoadingInfo.options.isSyncLoading(), handler, engine);
 	}
+
+	/** Fires cancel event for task which was dropped from full task queue */
+	void onDroppedFromQueue() {
+		L.d(LOG_TASK_DROPPED, imageLoadingInfo.memoryCacheKey);
+		discard();
+		Runnable r = new Runnable() {
+			@Override
+			public void run() {
+				imageLoadingInfo.listener.onLoadingCancelled(imageLoadingInfo.uri,
+						imageLoadingInfo.imageAware.getWrappedView());
+			}
+		};
+		LoadAndDisplayImageTask.runTask(r, false, handler, engine);
+	}
+
+	/** Releases bitmap of task which will never be run (e.g. it was removed from queue of stopped executor) */
+	void discard() {
+		engine.releaseBitmap(bitmap);
+	}
+
+	@Override
+	public int getPriority() {
+		return imageLoadingInfo.options.getPriority();
+	}
+
+	@Override
+	public long getSequence() {
+		return sequence;
+	}
 }
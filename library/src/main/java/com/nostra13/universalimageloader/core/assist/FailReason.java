@@ -68,6 +68,11 @@ public class FailReason {
 		 * 内存溢出
 		 * Not enough memory to create needed Bitmap for image */
 		OUT_OF_MEMORY,
+		/**
+		 * 超时
+		 * Image wasn't loaded before {@linkplain com.nostra13.universalimageloader.core.DisplayImageOptions.Builder#deadline(long)
+		 * deadline} */
+		TIMEOUT,
 		/**
 		 * 不明错误
 		 * Unknown error was occurred while loading image */
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Stage of image loading pipeline.
+ * 图片加载流水线的阶段
+ *
+ * @see com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#stagedPipeline(boolean)
+ */
+public enum PipelineStage {
+	/** Image downloading and caching on disk. 网络下载阶段 */
+	NETWORK,
+	/** Image decoding, pre-processing and caching in memory. 解码阶段 */
+	DECODE,
+	/** Image post-processing before displaying. 后处理阶段 */
+	PROCESS
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright 2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Defines which cache is warmed by image prefetching.
+ * 图片预加载的级别
+ *
+ * @see com.nostra13.universalimageloader.core.ImageLoader#prefetch(java.util.Collection, ImageSize, PrefetchLevel)
+ */
+public enum PrefetchLevel {
+	/** Image is downloaded to disk cache only, it isn't decoded. 只缓存到本地文件系统，不解码 */
+	DISK_ONLY,
+	/** Image is cached on disk, decoded and cached in memory. 缓存到本地文件系统和内存 */
+	MEMORY
+}
@@ -23,5 +23,13 @@ package com.nostra13.universalimageloader.core.assist;
  * @since 1.6.3
  */
 public enum QueueProcessingType {
-	FIFO, LIFO
+	/** First in, first out */
+	FIFO,
+	/** Last in, first out */
+	LIFO,
+	/**
+	 * Tasks with higher {@linkplain com.nostra13.universalimageloader.core.DisplayImageOptions.Builder#priority(int)
+	 * priority} are processed first, tasks with equal priority are processed in LIFO order
+	 */
+	PRIORITY
 }
@@ -3,7 +3,8 @@ package com.nostra13.universalimageloader.core.assist.deque;
 import java.util.NoSuchElementException;
 
 /**
- * {@link LinkedBlockingDeque} using LIFO algorithm
+ * {@link LinkedBlockingDeque} using LIFO algorithm. Deque can be bounded: if bounded deque is full then the oldest
+ * (deepest) element is dropped to make room for new one.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @since 1.6.3
@@ -12,6 +13,26 @@ public class LIFOLinkedBlockingDeque<T> extends LinkedBlockingDeque<T> {
 
 	private static final long serialVersionUID = -4114786347960826192L;
 
+	private final transient DropListener<? super T> dropListener;
+
+	/** Creates unbounded deque */
+	public LIFOLinkedBlockingDeque() {
+		super();
+		dropListener = null;
+	}
+
+	/**
+	 * Creates bounded deque. When deque is full the oldest element is dropped on insertion of new element.
+	 *
+	 * @param capacity     the capacity of this deque
+	 * @param dropListener null-ok; Listener which is notified about dropped elements
+	 * @throws IllegalArgumentException if {@code capacity} is less than 1
+	 */
+	public LIFOLinkedBlockingDeque(int capacity, DropListener<? super T> dropListener) {
+		super(capacity);
+		this.dropListener = dropListener;
+	}
+
 	/**
 	 * Inserts the specified element at the front of this deque if it is possible to do so immediately without violating
 	 * capacity restrictions, returning <tt>true</tt> upon success and <tt>false</tt> if no space is currently
@@ -29,7 +50,14 @@ public class LIFOLinkedBlockingDeque<T> extends LinkedBlockingDeque<T> {
 	 */
 	@Override
 	public boolean offer(T e) {
-		return super.offerFirst(e);
+		while (!super.offerFirst(e)) {
+			// Deque is full, drop the oldest element
+			T dropped = pollLast();
+			if (dropped != null && dropListener != null) {
+				dropListener.onDropped(dropped);
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -44,4 +72,14 @@ public class LIFOLinkedBlockingDeque<T> extends LinkedBlockingDeque<T> {
 	public T remove() {
 		return super.removeFirst();
 	}
+
+	/**
+	 * Listener of elements which are dropped from full bounded deque
+	 *
+	 * @param <T> Type of deque elements
+	 */
+	public interface DropListener<T> {
+		/** Is called (on thread which inserts new element) when element is dropped from deque */
+		void onDropped(T element);
+	}
 }
\ No newline at end of file
@@ -15,11 +15,17 @@
  *******************************************************************************/
 package com.nostra13.universalimageloader.core.decode;
 
+import android.annotation.TargetApi;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
 import android.media.ExifInterface;
+import android.os.Build;
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
@@ -45,6 +51,8 @@ public class BaseImageDecoder implements ImageDecoder {
 	protected static final String LOG_FLIP_IMAGE = "Flip image horizontally [%s]";
 	protected static final String ERROR_NO_IMAGE_STREAM = "No stream for image [%s]";
 	protected static final String ERROR_CANT_DECODE_IMAGE = "Image can't be decoded [%s]";
+	protected static final String LOG_REUSE_BITMAP = "Reuse pooled bitmap (%1$dx%2$d) for decoding [%3$s]";
+	protected static final String LOG_CANT_REUSE_BITMAP = "Pooled bitmap can't be reused for decoding [%s]";
 
 	protected final boolean loggingEnabled;
 
@@ -80,7 +88,24 @@ public class BaseImageDecoder implements ImageDecoder {
 			imageInfo = defineImageSizeAndRotation(imageStream, decodingInfo);
 			imageStream = resetStream(imageStream, decodingInfo);
 			Options decodingOptions = prepareDecodingOptions(imageInfo.imageSize, decodingInfo);
-			decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			BitmapPool bitmapPool = decodingInfo.getBitmapPool();
+			if (bitmapPool != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+				prepareBitmapReuse(decodingOptions, imageInfo, bitmapPool, decodingInfo);
+				try {
+					decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+				} catch (IllegalArgumentException e) {
+					// Pooled bitmap doesn't fit decoded image (i.e. image format doesn't support reusing)
+					L.d(LOG_CANT_REUSE_BITMAP, decodingInfo.getImageKey());
+					releaseReusedBitmap(decodingOptions, bitmapPool);
+					imageStream = resetStream(imageStream, decodingInfo);
+					decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+				}
+				if (decodedBitmap == null) {
+					releaseReusedBitmap(decodingOptions, bitmapPool);
+				}
+			} else {
+				decodedBitmap = BitmapFactory.decodeStream(imageStream, null, decodingOptions);
+			}
 		} finally {
 			IoUtils.closeSilently(imageStream);
 		}
@@ -173,6 +198,44 @@ public class BaseImageDecoder implements ImageDecoder {
 		return decodingOptions;
 	}
 
+	/**
+	 * 从对象池中取得可复用的bitmap，设置为解码目标
+	 * Sets pooled bitmap of decoded image size (if pool has such one) as {@link Options#inBitmap} and makes decoded bitmap
+	 * mutable (so it can be reused later). Before Android 4.4 bitmap can be reused only if image isn't subsampled.
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	protected void prepareBitmapReuse(Options decodingOptions, ImageFileInfo imageInfo, BitmapPool bitmapPool,
+			ImageDecodingInfo decodingInfo) {
+		decodingOptions.inMutable = true;
+		int scale = decodingOptions.inSampleSize > 1 ? decodingOptions.inSampleSize : 1;
+		if (scale > 1 && Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) return;
+
+		// Image size is rotated according to EXIF, decoded bitmap isn't rotated
+		ImageSize imageSize = imageInfo.imageSize;
+		boolean rotated = imageInfo.exif.rotation == 90 || imageInfo.exif.rotation == 270;
+		int width = rotated ? imageSize.getHeight() : imageSize.getWidth();
+		int height = rotated ? imageSize.getWidth() : imageSize.getHeight();
+		// Subsampled size is rounded up (as JPEG decoder does). Since Android 4.4 reused bitmap can be bigger than image.
+		width = (width + scale - 1) / scale;
+		height = (height + scale - 1) / scale;
+		Bitmap.Config config = decodingOptions.inPreferredConfig != null ? decodingOptions.inPreferredConfig
+				: Bitmap.Config.ARGB_8888;
+		Bitmap pooledBitmap = bitmapPool.get(width, height, config);
+		if (pooledBitmap != null && loggingEnabled) {
+			L.d(LOG_REUSE_BITMAP, width, height, decodingInfo.getImageKey());
+		}
+		decodingOptions.inBitmap = pooledBitmap;
+	}
+
+	/** Returns bitmap which was set for reusing but wasn't used into pool */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void releaseReusedBitmap(Options decodingOptions, BitmapPool bitmapPool) {
+		if (decodingOptions.inBitmap != null) {
+			bitmapPool.put(decodingOptions.inBitmap);
+			decodingOptions.inBitmap = null;
+		}
+	}
+
 	protected InputStream resetStream(InputStream imageStream, ImageDecodingInfo decodingInfo) throws IOException {
 		if (imageStream.markSupported()) {
 			try {
@@ -215,14 +278,48 @@ public class BaseImageDecoder implements ImageDecoder {
 			if (loggingEnabled) L.d(LOG_ROTATE_IMAGE, rotation, decodingInfo.getImageKey());
 		}
 
-		Bitmap finalBitmap = Bitmap.createBitmap(subsampledBitmap, 0, 0, subsampledBitmap.getWidth(), subsampledBitmap
-				.getHeight(), m, true);
+		// Mutable (reusable) bitmap would be copied by Bitmap.createBitmap() even for identity matrix
+		if (m.isIdentity()) return subsampledBitmap;
+
+		BitmapPool bitmapPool = decodingInfo.getBitmapPool();
+		Bitmap finalBitmap = null;
+		if (bitmapPool != null) {
+			finalBitmap = transformIntoPooledBitmap(subsampledBitmap, m, bitmapPool);
+		}
+		if (finalBitmap == null) {
+			finalBitmap = Bitmap.createBitmap(subsampledBitmap, 0, 0, subsampledBitmap.getWidth(), subsampledBitmap
+					.getHeight(), m, true);
+		}
 		if (finalBitmap != subsampledBitmap) {
-			subsampledBitmap.recycle();
+			// Subsampled bitmap is intermediate one, it can be reused for next decoding
+			if (bitmapPool == null || !bitmapPool.put(subsampledBitmap)) {
+				subsampledBitmap.recycle();
+			}
 		}
 		return finalBitmap;
 	}
 
+	/**
+	 * Draws transformed bitmap into pooled bitmap of result size.
+	 *
+	 * @return Transformed bitmap or <b>null</b> if pool has no bitmap of needed size
+	 */
+	private Bitmap transformIntoPooledBitmap(Bitmap source, Matrix m, BitmapPool bitmapPool) {
+		RectF bounds = new RectF(0, 0, source.getWidth(), source.getHeight());
+		m.mapRect(bounds);
+		int width = Math.round(bounds.width());
+		int height = Math.round(bounds.height());
+		Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+		if (width <= 0 || height <= 0) return null;
+		Bitmap target = bitmapPool.get(width, height, config);
+		if (target == null) return null;
+
+		m.postTranslate(-bounds.left, -bounds.top);
+		Canvas canvas = new Canvas(target);
+		canvas.drawBitmap(source, m, new Paint(Paint.FILTER_BITMAP_FLAG));
+		return target;
+	}
+
 	protected static class ExifInfo {
 
 		public final int rotation;
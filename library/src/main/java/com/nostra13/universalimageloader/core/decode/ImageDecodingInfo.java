@@ -19,6 +19,7 @@ import android.annotation.TargetApi;
 import android.graphics.BitmapFactory.Options;
 import android.os.Build;
 
+import com.nostra13.universalimageloader.cache.memory.BitmapPool;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
@@ -46,9 +47,15 @@ public class ImageDecodingInfo {
 
 	private final boolean considerExifParams;
 	private final Options decodingOptions;
+	private final BitmapPool bitmapPool;
 
 	public ImageDecodingInfo(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize, ViewScaleType viewScaleType,
 							 ImageDownloader downloader, DisplayImageOptions displayOptions) {
+		this(imageKey, imageUri, originalImageUri, targetSize, viewScaleType, downloader, displayOptions, null);
+	}
+
+	public ImageDecodingInfo(String imageKey, String imageUri, String originalImageUri, ImageSize targetSize, ViewScaleType viewScaleType,
+							 ImageDownloader downloader, DisplayImageOptions displayOptions, BitmapPool bitmapPool) {
 		this.imageKey = imageKey;
 		this.imageUri = imageUri;
 		this.originalImageUri = originalImageUri;
@@ -63,6 +70,7 @@ public class ImageDecodingInfo {
 		considerExifParams = displayOptions.isConsiderExifParams();
 		decodingOptions = new Options();
 		copyOptions(displayOptions.getDecodingOptions(), decodingOptions);
+		this.bitmapPool = bitmapPool;
 	}
 
 	private void copyOptions(Options srcOptions, Options destOptions) {
@@ -147,4 +155,9 @@ public class ImageDecodingInfo {
 	public Options getDecodingOptions() {
 		return decodingOptions;
 	}
+
+	/** @return Pool of bitmaps which can be reused for decoding; can be <b>null</b> */
+	public BitmapPool getBitmapPool() {
+		return bitmapPool;
+	}
 }
\ No newline at end of file
@@ -39,8 +39,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Locale;
 
 /**
  * Provides retrieving of {@link InputStream} of image by URI from network or file system or app resources.<br />
@@ -159,6 +161,25 @@ public class BaseImageDownloader implements ImageDownloader {
 		return new ContentLengthInputStream(new BufferedInputStream(imageStream, BUFFER_SIZE), conn.getContentLength());
 	}
 
+	/**
+	 * 获取网络图片地址的主机名
+	 * Returns host of network image URI. URI is parsed the same way as in
+	 * {@link #getStreamFromNetwork(String, Object)}.
+	 *
+	 * @param imageUri Image URI
+	 * @return Host name (in lower case) or <b>null</b> if image isn't located in the network or URI is malformed
+	 */
+	public static String getHost(String imageUri) {
+		Scheme scheme = Scheme.ofUri(imageUri);
+		if (scheme != Scheme.HTTP && scheme != Scheme.HTTPS) return null;
+		try {
+			String host = new URL(Uri.encode(imageUri, ALLOWED_URI_CHARS)).getHost();
+			return host == null || host.length() == 0 ? null : host.toLowerCase(Locale.US);
+		} catch (MalformedURLException e) {
+			return null;
+		}
+	}
+
 	/**
      * 判断当前的响应码是否200
 	 * @param conn Opened request connection (response code is available)
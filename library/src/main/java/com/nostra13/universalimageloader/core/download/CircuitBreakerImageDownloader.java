@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按主机熔断的图片下载器装饰者
+ * Decorator. Breaks circuit for host after several consecutive failed downloads from it: while circuit is open, downloads
+ * from the host fail at once with {@link CircuitOpenException} without network request. After open time circuit is
+ * half-open: only one download (probe) is tried, other downloads from the host still fail at once until probe is
+ * finished. Successful probe closes circuit, failed one opens it again.<br />
+ * Wraps any {@link ImageDownloader}. Host of image URI is defined by {@link BaseImageDownloader#getHost(String)},
+ * images which aren't located in the network are passed through.
+ *
+ * @see com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#circuitBreaker(int, long)
+ */
+public class CircuitBreakerImageDownloader implements ImageDownloader {
+
+	private final ImageDownloader wrappedDownloader;
+	private final int failureThreshold;
+	private final long openTime;
+
+	private final Map<String, HostState> hostStates = new HashMap<String, HostState>();
+
+	/**
+	 * @param wrappedDownloader Downloader which makes downloads
+	 * @param failureThreshold  Number of consecutive failures which opens circuit for host
+	 * @param openTime          Time (in milliseconds) while circuit stays open
+	 */
+	public CircuitBreakerImageDownloader(ImageDownloader wrappedDownloader, int failureThreshold, long openTime) {
+		if (failureThreshold < 1 || openTime <= 0) {
+			throw new IllegalArgumentException("Wrong circuit breaker parameters");
+		}
+		this.wrappedDownloader = wrappedDownloader;
+		this.failureThreshold = failureThreshold;
+		this.openTime = openTime;
+	}
+
+	@Override
+	public InputStream getStream(String imageUri, Object extra) throws IOException {
+		String host = BaseImageDownloader.getHost(imageUri);
+		if (host == null) {
+			return wrappedDownloader.getStream(imageUri, extra);
+		}
+		if (!allowDownload(host)) {
+			throw new CircuitOpenException(host);
+		}
+		InputStream imageStream = null;
+		boolean succeeded = false;
+		try {
+			imageStream = wrappedDownloader.getStream(imageUri, extra);
+			succeeded = true;
+		} finally {
+			if (succeeded) {
+				onSuccess(host);
+			} else {
+				onFailure(host);
+			}
+		}
+		return imageStream;
+	}
+
+	/**
+	 * @return <b>true</b> - if circuit is closed or if download is a probe of half-open circuit; <b>false</b> - if
+	 * circuit is open or probe is in progress
+	 */
+	private synchronized boolean allowDownload(String host) {
+		HostState state = hostStates.get(host);
+		if (state == null || state.failures < failureThreshold) return true;
+		if (state.probing || System.currentTimeMillis() < state.openUntil) return false;
+		state.probing = true;
+		return true;
+	}
+
+	private synchronized void onFailure(String host) {
+		HostState state = hostStates.get(host);
+		if (state == null) {
+			state = new HostState();
+			hostStates.put(host, state);
+		}
+		state.probing = false;
+		state.failures++;
+		if (state.failures >= failureThreshold) {
+			state.openUntil = System.currentTimeMillis() + openTime;
+		}
+	}
+
+	private synchronized void onSuccess(String host) {
+		hostStates.remove(host);
+	}
+
+	/** Failures of host. Only hosts with failures are kept. */
+	private static final class HostState {
+		int failures;
+		long openUntil;
+		/*半开状态下是否有试探下载正在进行*/
+		boolean probing;
+	}
+
+	/** Thrown if circuit for image host is open, i.e. host failed several times in a row recently */
+	public static class CircuitOpenException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		public CircuitOpenException(String host) {
+			super("Circuit is open for host " + host);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.download;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * 指数退避(带随机抖动)的重试策略
+ * Retries failed download up to max attempts with exponential backoff: delay is doubled on every attempt (up to max
+ * delay) and randomized (from half of delay to full delay), so tasks which failed together don't retry together.<br />
+ * Failures which can't be fixed by retry aren't retried: missing image ({@link FileNotFoundException}, i.e. HTTP 404)
+ * and {@linkplain CircuitBreakerImageDownloader.CircuitOpenException open circuit} of host.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+	private final int maxAttempts;
+	private final long baseDelay;
+	private final long maxDelay;
+	private final Random random = new Random();
+
+	/**
+	 * @param maxAttempts Maximum number of download attempts (including the first one)
+	 * @param baseDelay   Delay (in milliseconds) before the first retry
+	 * @param maxDelay    Maximum delay (in milliseconds) between attempts
+	 */
+	public ExponentialBackoffRetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+		if (maxAttempts < 1 || baseDelay <= 0 || maxDelay < baseDelay) {
+			throw new IllegalArgumentException("Wrong retry policy parameters");
+		}
+		this.maxAttempts = maxAttempts;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	@Override
+	public long getRetryDelay(String imageUri, int attempt, IOException e) {
+		if (attempt >= maxAttempts) return -1;
+		if (e instanceof FileNotFoundException || e instanceof CircuitBreakerImageDownloader.CircuitOpenException) {
+			return -1;
+		}
+		long delay = attempt - 1 < Long.numberOfLeadingZeros(baseDelay) - 1 ? baseDelay << (attempt - 1) : maxDelay;
+		delay = Math.min(delay, maxDelay);
+		long halfDelay = delay / 2;
+		return halfDelay + (long) (random.nextDouble() * (delay - halfDelay));
+	}
+}
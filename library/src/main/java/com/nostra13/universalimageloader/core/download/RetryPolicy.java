@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2011-2014 Sergey Tarasevich
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.nostra13.universalimageloader.core.download;
+
+import java.io.IOException;
+
+/**
+ * 图片下载失败的重试策略
+ * Defines whether failed image download should be retried and when. Retry isn't made on the worker thread: task is
+ * re-submitted after the delay, so worker thread is free while task waits.<br />
+ * Implementations have to be thread-safe.
+ *
+ * @see com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder#retryPolicy(RetryPolicy)
+ */
+public interface RetryPolicy {
+	/**
+	 * Returns delay before next attempt to download image.
+	 *
+	 * @param imageUri Image URI
+	 * @param attempt  Number of failed attempt (<b>1</b> - for the first failure)
+	 * @param e        Cause of failure
+	 * @return Delay (in milliseconds) before next attempt or negative value if download shouldn't be retried
+	 */
+	long getRetryDelay(String imageUri, int attempt, IOException e);
+}
@@ -18,6 +18,7 @@ package com.nostra13.universalimageloader.utils;
 import android.graphics.Bitmap;
 
 import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.UriIndexedMemoryCache;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 
@@ -36,6 +37,15 @@ public final class MemoryCacheUtils {
 
 	private static final String URI_AND_SIZE_SEPARATOR = "_";
 	private static final String WIDTH_AND_HEIGHT_SEPARATOR = "x";
+	private static final int KEY_BUILDER_CAPACITY = 256;
+
+	/** Per-thread builder of cache keys, it's reused so key generation doesn't allocate builder buffers */
+	private static final ThreadLocal<StringBuilder> KEY_BUILDER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(KEY_BUILDER_CAPACITY);
+		}
+	};
 
 	private MemoryCacheUtils() {
 	}
@@ -46,7 +56,19 @@ public final class MemoryCacheUtils {
 	 * Pattern for cache key - <b>[imageUri]_[width]x[height]</b>.
 	 */
 	public static String generateKey(String imageUri, ImageSize targetSize) {
-		return new StringBuilder(imageUri).append(URI_AND_SIZE_SEPARATOR).append(targetSize.getWidth()).append(WIDTH_AND_HEIGHT_SEPARATOR).append(targetSize.getHeight()).toString();
+		StringBuilder keyBuilder = KEY_BUILDER.get();
+		keyBuilder.setLength(0);
+		return keyBuilder.append(imageUri).append(URI_AND_SIZE_SEPARATOR).append(targetSize.getWidth()).append(WIDTH_AND_HEIGHT_SEPARATOR).append(targetSize.getHeight()).toString();
+	}
+
+	/**
+	 * 从内存缓存key中获取图片地址
+	 * Returns image URI of memory cache key generated by {@link #generateKey(String, ImageSize)}. Key which wasn't
+	 * generated by this method is returned as is.
+	 */
+	public static String getImageUri(String memoryCacheKey) {
+		int separatorIndex = memoryCacheKey.lastIndexOf(URI_AND_SIZE_SEPARATOR);
+		return separatorIndex < 0 ? memoryCacheKey : memoryCacheKey.substring(0, separatorIndex);
 	}
 
 	/**
@@ -73,6 +95,15 @@ public final class MemoryCacheUtils {
 	 */
 	public static List<Bitmap> findCachedBitmapsForImageUri(String imageUri, MemoryCache memoryCache) {
 		List<Bitmap> values = new ArrayList<Bitmap>();
+		if (memoryCache instanceof UriIndexedMemoryCache) {
+			for (String key : ((UriIndexedMemoryCache) memoryCache).keysForUri(imageUri)) {
+				Bitmap value = memoryCache.get(key);
+				if (value != null) { // Key could be evicted already
+					values.add(value);
+				}
+			}
+			return values;
+		}
 		for (String key : memoryCache.keys()) {
 			if (key.startsWith(imageUri)) {
 				values.add(memoryCache.get(key));
@@ -89,6 +120,9 @@ public final class MemoryCacheUtils {
 	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
 	 */
 	public static List<String> findCacheKeysForImageUri(String imageUri, MemoryCache memoryCache) {
+		if (memoryCache instanceof UriIndexedMemoryCache) {
+			return ((UriIndexedMemoryCache) memoryCache).keysForUri(imageUri);
+		}
 		List<String> values = new ArrayList<String>();
 		for (String key : memoryCache.keys()) {
 			if (key.startsWith(imageUri)) {
@@ -103,13 +137,21 @@ public final class MemoryCacheUtils {
 	 * Removes from memory cache all images for incoming URI.<br />
 	 * <b>Note:</b> Memory cache can contain multiple sizes of the same image if only you didn't set
 	 * {@link ImageLoaderConfiguration.Builder#denyCacheImageMultipleSizesInMemory()
-	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}
+	 * denyCacheImageMultipleSizesInMemory()} option in {@linkplain ImageLoaderConfiguration configuration}<br />
+	 * <b>Note:</b> Images which are displayed at this moment can be kept out of memory cache by ImageLoader (see
+	 * {@link ImageLoaderConfiguration.Builder#activeResources(boolean) active images tier}). Use
+	 * {@link com.nostra13.universalimageloader.core.ImageLoader#removeFromMemoryCache(String)} to remove them too.
 	 */
 	public static void removeFromCache(String imageUri, MemoryCache memoryCache) {
-		List<String> keysToRemove = new ArrayList<String>();
-		for (String key : memoryCache.keys()) {
-			if (key.startsWith(imageUri)) {
-				keysToRemove.add(key);
+		List<String> keysToRemove;
+		if (memoryCache instanceof UriIndexedMemoryCache) {
+			keysToRemove = ((UriIndexedMemoryCache) memoryCache).keysForUri(imageUri);
+		} else {
+			keysToRemove = new ArrayList<String>();
+			for (String key : memoryCache.keys()) {
+				if (key.startsWith(imageUri)) {
+					keysToRemove.add(key);
+				}
 			}
 		}
 		for (String keyToRemove : keysToRemove) {
@@ -0,0 +1,174 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.LimitedMemoryCache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class LimitedMemoryCacheTest {
+
+	private Bitmap mBitmap1;
+	private Bitmap mBitmap2;
+	private Bitmap mBitmap3;
+	private int mBitmapSize;
+	private List<Bitmap> mEvicted;
+
+	@Before
+	public void setUp() throws Exception {
+		mBitmap1 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		mBitmap2 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		mBitmap3 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		mBitmapSize = mBitmap1.getRowBytes() * mBitmap1.getHeight();
+		Assertions.assertThat(mBitmapSize).isPositive();
+		mEvicted = new ArrayList<Bitmap>();
+	}
+
+	@Test
+	public void testPut_replacedValueIsReleased() throws Exception {
+		List<LimitedMemoryCache> caches = new ArrayList<LimitedMemoryCache>();
+		caches.add(new FIFOLimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		});
+		caches.add(new LRULimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		});
+		caches.add(new LargestLimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		});
+		caches.add(new UsingFreqLimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		});
+
+		for (LimitedMemoryCache cache : caches) {
+			Assertions.assertThat(cache.put("key1", mBitmap1)).isEqualTo(true);
+			Assertions.assertThat(cache.put("key1", mBitmap2)).isEqualTo(true);
+			Assertions.assertThat(cache.put("key1", mBitmap3)).isEqualTo(true);
+			// Replaced Bitmaps aren't counted, so there is space for one more Bitmap
+			Assertions.assertThat(cache.put("key2", mBitmap1)).isEqualTo(true);
+
+			Assertions.assertThat(mEvicted).isEmpty();
+			Assertions.assertThat(cache.get("key1")).isSameAs(mBitmap3);
+			Assertions.assertThat(cache.get("key2")).isSameAs(mBitmap1);
+		}
+	}
+
+	@Test
+	public void testEviction_fifo() throws Exception {
+		LimitedMemoryCache cache = new FIFOLimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		};
+		cache.put("key1", mBitmap1);
+		cache.put("key2", mBitmap2);
+		cache.get("key1");
+		cache.put("key3", mBitmap3);
+
+		Assertions.assertThat(mEvicted.size()).isEqualTo(1);
+		Assertions.assertThat(mEvicted.get(0)).isSameAs(mBitmap1);
+	}
+
+	@Test
+	public void testEviction_lru() throws Exception {
+		LimitedMemoryCache cache = new LRULimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		};
+		cache.put("key1", mBitmap1);
+		cache.put("key2", mBitmap2);
+		cache.get("key1");
+		cache.put("key3", mBitmap3);
+
+		Assertions.assertThat(mEvicted.size()).isEqualTo(1);
+		Assertions.assertThat(mEvicted.get(0)).isSameAs(mBitmap2);
+	}
+
+	@Test
+	public void testEviction_largest() throws Exception {
+		Bitmap bigBitmap = Bitmap.createBitmap(200, 100, Bitmap.Config.ARGB_8888);
+		LimitedMemoryCache cache = new LargestLimitedMemoryCache(mBitmapSize * 4) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		};
+		cache.put("key1", mBitmap1);
+		cache.put("big", bigBitmap);
+		cache.put("key2", mBitmap2);
+		cache.put("key3", mBitmap3);
+
+		Assertions.assertThat(mEvicted.size()).isEqualTo(1);
+		Assertions.assertThat(mEvicted.get(0)).isSameAs(bigBitmap);
+	}
+
+	@Test
+	public void testEviction_usingFreq() throws Exception {
+		LimitedMemoryCache cache = new UsingFreqLimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		};
+		cache.put("key1", mBitmap1);
+		cache.put("key2", mBitmap2);
+		cache.get("key1");
+		cache.get("key1");
+		cache.get("key2");
+		cache.put("key3", mBitmap3);
+
+		Assertions.assertThat(mEvicted.size()).isEqualTo(1);
+		Assertions.assertThat(mEvicted.get(0)).isSameAs(mBitmap2);
+	}
+
+	@Test
+	public void testRemoveAndClear() throws Exception {
+		LimitedMemoryCache cache = new FIFOLimitedMemoryCache(mBitmapSize * 2) {
+			@Override
+			protected Bitmap removeNext() {
+				return recordEviction(super.removeNext());
+			}
+		};
+		cache.put("key1", mBitmap1);
+		cache.put("key2", mBitmap2);
+		Assertions.assertThat(cache.remove("key1")).isSameAs(mBitmap1);
+		cache.put("key3", mBitmap3);
+		Assertions.assertThat(mEvicted).isEmpty();
+
+		cache.clear();
+		Assertions.assertThat(cache.keys()).isEmpty();
+		cache.put("key1", mBitmap1);
+		cache.put("key2", mBitmap2);
+		Assertions.assertThat(mEvicted).isEmpty();
+	}
+
+	private Bitmap recordEviction(Bitmap evicted) {
+		if (evicted != null) {
+			mEvicted.add(evicted);
+		}
+		return evicted;
+	}
+}
@@ -0,0 +1,127 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class SegmentedLruMemoryCacheTest {
+	private static final int CACHED_IMAGES = 32;
+	private static final int SEGMENTS = 4;
+
+	private Bitmap mBitmap;
+	private int mBitmapSize;
+	private int mCacheSize;
+
+	@Before
+	public void setUp() throws Exception {
+		mBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+		mBitmapSize = mBitmap.getRowBytes() * mBitmap.getHeight();
+		Assertions.assertThat(mBitmapSize).isPositive();
+		mCacheSize = mBitmapSize * CACHED_IMAGES;
+	}
+
+	@Test
+	public void testSize_putReplaceRemove() throws Exception {
+		SegmentedLruMemoryCache cache = new SegmentedLruMemoryCache(mCacheSize, SEGMENTS);
+		Bitmap bigBitmap = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+
+		cache.put("key1", mBitmap);
+		cache.put("key2", mBitmap);
+		Assertions.assertThat(cache.size()).isEqualTo(2 * mBitmapSize);
+
+		cache.put("key1", bigBitmap);
+		Assertions.assertThat(cache.size()).isEqualTo(3 * mBitmapSize);
+
+		Assertions.assertThat(cache.remove("key1")).isSameAs(bigBitmap);
+		Assertions.assertThat(cache.remove("key1")).isNull();
+		Assertions.assertThat(cache.size()).isEqualTo(mBitmapSize);
+
+		cache.clear();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+		Assertions.assertThat(cache.keys()).isEmpty();
+	}
+
+	@Test
+	public void testSizeDoesNotExceedMaxSize() throws Exception {
+		SegmentedLruMemoryCache cache = new SegmentedLruMemoryCache(mCacheSize, SEGMENTS);
+		for (int i = 0; i < CACHED_IMAGES * 10; i++) {
+			cache.put("key" + i, mBitmap);
+			Assertions.assertThat(cache.size()).isLessThanOrEqualTo(mCacheSize);
+		}
+		Assertions.assertThat(cache.size()).isEqualTo(cache.keys().size() * mBitmapSize);
+		// Cache is full: eviction doesn't leave space unused
+		Assertions.assertThat(cache.size()).isGreaterThan(mCacheSize - SEGMENTS * mBitmapSize);
+	}
+
+	@Test
+	public void testBitmapBiggerThanSegmentBudgetIsCached() throws Exception {
+		SegmentedLruMemoryCache cache = new SegmentedLruMemoryCache(mCacheSize, SEGMENTS);
+		int side = (int) Math.sqrt(CACHED_IMAGES / 2) * 10;
+		Bitmap bigBitmap = Bitmap.createBitmap(side, side, Bitmap.Config.ARGB_8888);
+		Assertions.assertThat(bigBitmap.getRowBytes() * bigBitmap.getHeight()).isGreaterThan(mCacheSize / SEGMENTS);
+
+		for (int i = 0; i < CACHED_IMAGES; i++) {
+			cache.put("key" + i, mBitmap);
+		}
+		cache.put("big", bigBitmap);
+
+		Assertions.assertThat(cache.get("big")).isSameAs(bigBitmap);
+		Assertions.assertThat(cache.size()).isLessThanOrEqualTo(mCacheSize);
+	}
+
+	@Test
+	public void testConcurrentPutGet() throws Exception {
+		final SegmentedLruMemoryCache cache = new SegmentedLruMemoryCache(mCacheSize, SEGMENTS);
+		final int threadCount = 4;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; t++) {
+			final Random random = new Random(t);
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < 20000; i++) {
+							String key = "key" + random.nextInt(CACHED_IMAGES * 4);
+							if (cache.get(key) == null) {
+								cache.put(key, mBitmap);
+							}
+							if (i % 100 == 0) {
+								cache.remove("key" + random.nextInt(CACHED_IMAGES * 4));
+							}
+						}
+					} catch (Throwable e) {
+						error.set(e);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assertions.assertThat(error.get()).isNull();
+		Assertions.assertThat(cache.size()).isLessThanOrEqualTo(mCacheSize);
+		// Size accounting stays consistent with cached Bitmaps
+		Assertions.assertThat(cache.size()).isEqualTo(cache.keys().size() * mBitmapSize);
+		for (String key : cache.keys()) {
+			Assertions.assertThat(cache.get(key)).isSameAs(mBitmap);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+public class TinyLfuMemoryCacheTest {
+	private static final int CACHED_IMAGES = 100;
+
+	private Bitmap mBitmap;
+	private int mCacheSize;
+
+	@Before
+	public void setUp() throws Exception {
+		mBitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		int bitmapSize = mBitmap.getRowBytes() * mBitmap.getHeight();
+		Assertions.assertThat(bitmapSize).isPositive();
+		mCacheSize = bitmapSize * CACHED_IMAGES;
+	}
+
+	/**
+	 * Trace of list screens: avatars (popular images) are shown on every screen, sometimes user flings through 300
+	 * one-off thumbnails. LRU cache is flushed by every fling.
+	 */
+	@Test
+	public void testHitRatio_scanResistant() throws Exception {
+		List<String> trace = createScreensWithFlingsTrace(new Random(42));
+
+		double lruHitRatio = replay(new LruMemoryCache(mCacheSize), trace);
+		double tinyLfuHitRatio = replay(new TinyLfuMemoryCache(mCacheSize), trace);
+
+		Assertions.assertThat(tinyLfuHitRatio - lruHitRatio).isGreaterThanOrEqualTo(0.10);
+	}
+
+	/** Trace without scans: popularity of images follows Zipf distribution */
+	@Test
+	public void testHitRatio_zipf() throws Exception {
+		Random random = new Random(7);
+		ZipfGenerator zipf = new ZipfGenerator(5000, random);
+		List<String> trace = new ArrayList<String>();
+		for (int i = 0; i < 50000; i++) {
+			trace.add("http://image.com/photo/" + zipf.next() + ".jpg_100x100");
+		}
+
+		double lruHitRatio = replay(new LruMemoryCache(mCacheSize), trace);
+		double tinyLfuHitRatio = replay(new TinyLfuMemoryCache(mCacheSize), trace);
+
+		Assertions.assertThat(tinyLfuHitRatio).isGreaterThan(lruHitRatio);
+	}
+
+	@Test
+	public void testSizeDoesNotExceedMaxSize() throws Exception {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(mCacheSize);
+		for (String key : createScreensWithFlingsTrace(new Random(1))) {
+			if (cache.get(key) == null) {
+				cache.put(key, mBitmap);
+			}
+			Assertions.assertThat(cache.size()).isLessThanOrEqualTo(mCacheSize);
+		}
+		Assertions.assertThat(cache.keys().size()).isLessThanOrEqualTo(CACHED_IMAGES);
+
+		cache.clear();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+		Assertions.assertThat(cache.keys()).isEmpty();
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		TinyLfuMemoryCache cache = new TinyLfuMemoryCache(mCacheSize);
+		cache.put("key", mBitmap);
+
+		Assertions.assertThat(cache.get("key")).isSameAs(mBitmap);
+		Assertions.assertThat(cache.remove("key")).isSameAs(mBitmap);
+		Assertions.assertThat(cache.get("key")).isNull();
+		Assertions.assertThat(cache.size()).isEqualTo(0);
+	}
+
+	/** Replays trace like ImageLoader does (image is loaded and put into cache on miss) and returns hit ratio */
+	private double replay(MemoryCache cache, List<String> trace) {
+		int hits = 0;
+		for (String key : trace) {
+			if (cache.get(key) != null) {
+				hits++;
+			} else {
+				cache.put(key, mBitmap);
+			}
+		}
+		return (double) hits / trace.size();
+	}
+
+	private static List<String> createScreensWithFlingsTrace(Random random) {
+		List<String> trace = new ArrayList<String>();
+		int thumbnail = 0;
+		for (int screen = 0; screen < 500; screen++) {
+			for (int i = 0; i < 40; i++) {
+				trace.add("http://image.com/avatar/" + random.nextInt(60) + ".jpg_100x100");
+			}
+			if (screen % 5 == 4) {
+				for (int i = 0; i < 300; i++) {
+					trace.add("http://image.com/thumbnail/" + thumbnail++ + ".jpg_100x100");
+				}
+			}
+		}
+		return trace;
+	}
+
+	private static final class ZipfGenerator {
+		private final double[] cumulativeProbabilities;
+		private final Random random;
+
+		ZipfGenerator(int size, Random random) {
+			this.random = random;
+			cumulativeProbabilities = new double[size];
+			double sum = 0;
+			for (int i = 0; i < size; i++) {
+				sum += 1.0 / (i + 1);
+				cumulativeProbabilities[i] = sum;
+			}
+			for (int i = 0; i < size; i++) {
+				cumulativeProbabilities[i] /= sum;
+			}
+		}
+
+		int next() {
+			double value = random.nextDouble();
+			int low = 0;
+			int high = cumulativeProbabilities.length - 1;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (cumulativeProbabilities[middle] < value) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+	}
+}
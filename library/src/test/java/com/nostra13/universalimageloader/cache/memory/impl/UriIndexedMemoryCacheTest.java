@@ -0,0 +1,67 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class UriIndexedMemoryCacheTest {
+	private static final String IMAGE_URI = "http://image.com/photo.jpg";
+
+	private Bitmap mBitmap;
+	private int mBitmapSize;
+
+	@Before
+	public void setUp() throws Exception {
+		mBitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+		mBitmapSize = mBitmap.getRowBytes() * mBitmap.getHeight();
+		Assertions.assertThat(mBitmapSize).isPositive();
+	}
+
+	@Test
+	public void testKeysForUri_evictedKeyLeavesIndex() throws Exception {
+		UriIndexedMemoryCache cache = new UriIndexedMemoryCache(new LruMemoryCache(mBitmapSize * 2));
+		cache.put(IMAGE_URI + "_100x100", mBitmap);
+		cache.put(IMAGE_URI + "_200x200", mBitmap);
+		cache.put("http://image.com/other.jpg_100x100", mBitmap);
+
+		Assertions.assertThat(cache.keysForUri(IMAGE_URI).size()).isEqualTo(1);
+		Assertions.assertThat(cache.keysForUri(IMAGE_URI).get(0)).isEqualTo(IMAGE_URI + "_200x200");
+	}
+
+	@Test
+	public void testKeysForUri_notReportingCache() throws Exception {
+		UriIndexedMemoryCache cache = new UriIndexedMemoryCache(new FIFOLimitedMemoryCache(mBitmapSize * 2));
+		cache.put(IMAGE_URI + "_100x100", mBitmap);
+		cache.getWrappedCache().remove(IMAGE_URI + "_100x100");
+
+		Assertions.assertThat(cache.keysForUri(IMAGE_URI)).isEmpty();
+	}
+
+	@Test
+	public void testPut_denyMultipleSizes() throws Exception {
+		UriIndexedMemoryCache cache = new UriIndexedMemoryCache(new LruMemoryCache(mBitmapSize * 4), true);
+		cache.put(IMAGE_URI + "_100x100", mBitmap);
+		cache.put(IMAGE_URI + "_200x200", mBitmap);
+
+		Assertions.assertThat(cache.get(IMAGE_URI + "_100x100")).isNull();
+		Assertions.assertThat(cache.keysForUri(IMAGE_URI).size()).isEqualTo(1);
+		Assertions.assertThat(cache.keys().size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRemoveAndClear() throws Exception {
+		UriIndexedMemoryCache cache = new UriIndexedMemoryCache(new TinyLfuMemoryCache(mBitmapSize * 100));
+		cache.put(IMAGE_URI + "_100x100", mBitmap);
+		cache.put(IMAGE_URI + "_200x200", mBitmap);
+
+		Assertions.assertThat(cache.remove(IMAGE_URI + "_100x100")).isSameAs(mBitmap);
+		Assertions.assertThat(cache.keysForUri(IMAGE_URI).size()).isEqualTo(1);
+		cache.clear();
+		Assertions.assertThat(cache.keysForUri(IMAGE_URI)).isEmpty();
+	}
+}
@@ -0,0 +1,125 @@
+package com.nostra13.universalimageloader.core;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConcurrentIntObjectMapTest {
+
+	@Test
+	public void testPutGetRemove() throws Exception {
+		ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<String>();
+
+		Assertions.assertThat(map.put(1, "a")).isNull();
+		Assertions.assertThat(map.put(-1, "b")).isNull();
+		Assertions.assertThat(map.put(1, "c")).isEqualTo("a");
+		Assertions.assertThat(map.get(1)).isEqualTo("c");
+		Assertions.assertThat(map.get(-1)).isEqualTo("b");
+		Assertions.assertThat(map.get(2)).isNull();
+		Assertions.assertThat(map.size()).isEqualTo(2);
+
+		Assertions.assertThat(map.remove(1)).isEqualTo("c");
+		Assertions.assertThat(map.remove(1)).isNull();
+		Assertions.assertThat(map.get(1)).isNull();
+		Assertions.assertThat(map.size()).isEqualTo(1);
+
+		// Key is put again into slot with tombstone
+		Assertions.assertThat(map.put(1, "d")).isNull();
+		Assertions.assertThat(map.get(1)).isEqualTo("d");
+		Assertions.assertThat(map.size()).isEqualTo(2);
+
+		map.clear();
+		Assertions.assertThat(map.size()).isEqualTo(0);
+		Assertions.assertThat(map.get(-1)).isNull();
+	}
+
+	@Test
+	public void testConditionalRemove() throws Exception {
+		ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<String>();
+		String value = new String("a");
+		map.put(1, value);
+
+		// Values are compared by reference
+		Assertions.assertThat(map.remove(1, new String("a"))).isEqualTo(false);
+		Assertions.assertThat(map.remove(2, value)).isEqualTo(false);
+		Assertions.assertThat(map.get(1)).isSameAs(value);
+
+		Assertions.assertThat(map.remove(1, value)).isEqualTo(true);
+		Assertions.assertThat(map.remove(1, value)).isEqualTo(false);
+		Assertions.assertThat(map.get(1)).isNull();
+		Assertions.assertThat(map.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void testResizeAndTombstones() throws Exception {
+		ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			map.put(i * 31, i);
+		}
+		Assertions.assertThat(map.size()).isEqualTo(10000);
+		for (int i = 0; i < 10000; i += 2) {
+			map.remove(i * 31);
+		}
+		// Table is filled with tombstones and rebuilt many times
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 1000; i++) {
+				int key = -(round * 1000 + i) - 1;
+				map.put(key, i);
+				map.remove(key);
+			}
+		}
+		Assertions.assertThat(map.size()).isEqualTo(5000);
+		for (int i = 0; i < 10000; i++) {
+			if (i % 2 == 0) {
+				Assertions.assertThat(map.get(i * 31)).isNull();
+			} else {
+				Assertions.assertThat(map.get(i * 31)).isEqualTo(i);
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		final ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		final int stableKeys = 100;
+		for (int i = 0; i < stableKeys; i++) {
+			map.put(i, i);
+		}
+		final AtomicReference<String> error = new AtomicReference<String>();
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = stableKeys; i < 50000; i++) {
+					map.put(i, i);
+					if (i % 3 == 0) {
+						map.remove(i);
+					}
+				}
+			}
+		};
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				for (int round = 0; round < 200; round++) {
+					for (int i = 0; i < stableKeys; i++) {
+						Integer value = map.get(i);
+						if (value == null || value != i) {
+							error.set("Wrong value for key " + i + ": " + value);
+							return;
+						}
+					}
+				}
+			}
+		};
+		writer.start();
+		reader.start();
+		writer.join();
+		reader.join();
+
+		Assertions.assertThat(error.get()).isNull();
+	}
+}
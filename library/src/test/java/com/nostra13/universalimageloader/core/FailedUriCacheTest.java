@@ -0,0 +1,73 @@
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.FailReason.FailType;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class FailedUriCacheTest {
+	private static final String URI_1 = "http://image.com/1.png";
+	private static final String URI_2 = "http://image.com/2.png";
+	private static final String URI_3 = "http://image.com/3.png";
+
+	@Test
+	public void testPutGetRemove() throws Exception {
+		FailedUriCache cache = new FailedUriCache(10, 60000, 60000);
+		Assertions.assertThat(cache.get(URI_1)).isNull();
+
+		cache.put(URI_1, FailType.IO_ERROR);
+		cache.put(URI_2, FailType.IO_ERROR);
+		cache.put(URI_2, FailType.DECODING_ERROR);
+		Assertions.assertThat(cache.get(URI_1)).isEqualTo(FailType.IO_ERROR);
+		Assertions.assertThat(cache.get(URI_2)).isEqualTo(FailType.DECODING_ERROR);
+
+		cache.remove(URI_1);
+		Assertions.assertThat(cache.get(URI_1)).isNull();
+		cache.clear();
+		Assertions.assertThat(cache.get(URI_2)).isNull();
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		FailedUriCache cache = new FailedUriCache(2, 60000, 60000);
+		cache.put(URI_1, FailType.IO_ERROR);
+		cache.put(URI_2, FailType.IO_ERROR);
+		cache.get(URI_1);
+		cache.put(URI_3, FailType.IO_ERROR);
+
+		Assertions.assertThat(cache.get(URI_1)).isEqualTo(FailType.IO_ERROR);
+		Assertions.assertThat(cache.get(URI_2)).isNull();
+		Assertions.assertThat(cache.get(URI_3)).isEqualTo(FailType.IO_ERROR);
+	}
+
+	@Test
+	public void testTtl_growsForRepeatedFailures() throws Exception {
+		FailedUriCache cache = new FailedUriCache(10, 300, 3000);
+		cache.put(URI_1, FailType.IO_ERROR);
+		Thread.sleep(400);
+		Assertions.assertThat(cache.get(URI_1)).isNull();
+
+		// Second failure is remembered for 600 ms
+		cache.put(URI_1, FailType.IO_ERROR);
+		Thread.sleep(400);
+		Assertions.assertThat(cache.get(URI_1)).isEqualTo(FailType.IO_ERROR);
+
+		// Successful loading resets TTL to minimum
+		cache.remove(URI_1);
+		cache.put(URI_1, FailType.IO_ERROR);
+		Thread.sleep(400);
+		Assertions.assertThat(cache.get(URI_1)).isNull();
+	}
+
+	@Test
+	public void testTtl_doesNotOverflow() throws Exception {
+		FailedUriCache cache = new FailedUriCache(10, 1000, 60000);
+		for (int i = 0; i < 100; i++) {
+			cache.put(URI_1, FailType.IO_ERROR);
+			Assertions.assertThat(cache.get(URI_1)).isEqualTo(FailType.IO_ERROR);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class HostSchedulerTest {
+	private static final String HOST_A = "a.image.com";
+	private static final String HOST_B = "b.image.com";
+
+	private ImageLoaderEngine mEngine;
+
+	@Before
+	public void setUp() throws Exception {
+		mEngine = new ImageLoaderEngine(new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application).build());
+	}
+
+	@Test
+	public void testAdmit_perHostLimit() throws Exception {
+		HostScheduler scheduler = new HostScheduler(2, 10, QueueProcessingType.FIFO);
+		LoadAndDisplayImageTask a3 = createTask(HOST_A, 3);
+
+		Assertions.assertThat(scheduler.admit(createTask(HOST_A, 1), HOST_A)).isEqualTo(true);
+		Assertions.assertThat(scheduler.admit(createTask(HOST_A, 2), HOST_A)).isEqualTo(true);
+		Assertions.assertThat(scheduler.admit(a3, HOST_A)).isEqualTo(false);
+		// Full host doesn't block other hosts
+		Assertions.assertThat(scheduler.admit(createTask(HOST_B, 1), HOST_B)).isEqualTo(true);
+
+		List<LoadAndDisplayImageTask> admitted = scheduler.release(HOST_A);
+		Assertions.assertThat(admitted.size()).isEqualTo(1);
+		Assertions.assertThat(admitted.get(0)).isSameAs(a3);
+	}
+
+	@Test
+	public void testRelease_roundRobinBetweenHosts() throws Exception {
+		HostScheduler scheduler = new HostScheduler(1, 1, QueueProcessingType.FIFO);
+		LoadAndDisplayImageTask a2 = createTask(HOST_A, 2);
+		LoadAndDisplayImageTask b1 = createTask(HOST_B, 1);
+
+		Assertions.assertThat(scheduler.admit(createTask(HOST_A, 1), HOST_A)).isEqualTo(true);
+		Assertions.assertThat(scheduler.admit(a2, HOST_A)).isEqualTo(false);
+		Assertions.assertThat(scheduler.admit(b1, HOST_B)).isEqualTo(false);
+		Assertions.assertThat(scheduler.admit(createTask(HOST_A, 3), HOST_A)).isEqualTo(false);
+
+		List<LoadAndDisplayImageTask> admitted = scheduler.release(HOST_A);
+		Assertions.assertThat(admitted.size()).isEqualTo(1);
+		Assertions.assertThat(admitted.get(0)).isSameAs(b1);
+
+		admitted = scheduler.release(HOST_B);
+		Assertions.assertThat(admitted.size()).isEqualTo(1);
+		Assertions.assertThat(admitted.get(0)).isSameAs(a2);
+	}
+
+	@Test
+	public void testRelease_lifo() throws Exception {
+		HostScheduler scheduler = new HostScheduler(1, 1, QueueProcessingType.LIFO);
+		LoadAndDisplayImageTask a3 = createTask(HOST_A, 3);
+
+		scheduler.admit(createTask(HOST_A, 1), HOST_A);
+		scheduler.admit(createTask(HOST_A, 2), HOST_A);
+		scheduler.admit(a3, HOST_A);
+
+		List<LoadAndDisplayImageTask> admitted = scheduler.release(HOST_A);
+		Assertions.assertThat(admitted.size()).isEqualTo(1);
+		Assertions.assertThat(admitted.get(0)).isSameAs(a3);
+	}
+
+	@Test
+	public void testTryAdmit() throws Exception {
+		HostScheduler scheduler = new HostScheduler(1, 2, QueueProcessingType.FIFO);
+
+		Assertions.assertThat(scheduler.tryAdmit(HOST_A)).isEqualTo(true);
+		Assertions.assertThat(scheduler.tryAdmit(HOST_A)).isEqualTo(false);
+		Assertions.assertThat(scheduler.tryAdmit(HOST_B)).isEqualTo(true);
+		Assertions.assertThat(scheduler.tryAdmit(HOST_B)).isEqualTo(false);
+		// Task isn't queued if it isn't admitted
+		Assertions.assertThat(scheduler.release(HOST_A)).isNull();
+		Assertions.assertThat(scheduler.release(HOST_B)).isNull();
+	}
+
+	@Test
+	public void testTryAdmit_doesNotOvertakeWaitingTasks() throws Exception {
+		HostScheduler scheduler = new HostScheduler(2, 1, QueueProcessingType.FIFO);
+
+		Assertions.assertThat(scheduler.admit(createTask(HOST_A, 1), HOST_A)).isEqualTo(true);
+		Assertions.assertThat(scheduler.admit(createTask(HOST_A, 2), HOST_A)).isEqualTo(false);
+		Assertions.assertThat(scheduler.tryAdmit(HOST_B)).isEqualTo(false);
+
+		Assertions.assertThat(scheduler.release(HOST_A).size()).isEqualTo(1);
+		Assertions.assertThat(scheduler.tryAdmit(HOST_B)).isEqualTo(false);
+		Assertions.assertThat(scheduler.release(HOST_A)).isNull();
+		Assertions.assertThat(scheduler.tryAdmit(HOST_B)).isEqualTo(true);
+	}
+
+	@Test
+	public void testRemoveAndSetMaxActive() throws Exception {
+		HostScheduler scheduler = new HostScheduler(2, 1, QueueProcessingType.FIFO);
+		LoadAndDisplayImageTask a2 = createTask(HOST_A, 2);
+		LoadAndDisplayImageTask a3 = createTask(HOST_A, 3);
+
+		scheduler.admit(createTask(HOST_A, 1), HOST_A);
+		scheduler.admit(a2, HOST_A);
+		scheduler.admit(a3, HOST_A);
+
+		Assertions.assertThat(scheduler.remove(a2, HOST_A)).isEqualTo(true);
+		Assertions.assertThat(scheduler.remove(a2, HOST_A)).isEqualTo(false);
+
+		List<LoadAndDisplayImageTask> admitted = scheduler.setMaxActive(2);
+		Assertions.assertThat(admitted.size()).isEqualTo(1);
+		Assertions.assertThat(admitted.get(0)).isSameAs(a3);
+	}
+
+	private LoadAndDisplayImageTask createTask(String host, int index) {
+		String uri = "http://" + host + "/" + index + ".jpg";
+		ImageSize targetSize = new ImageSize(100, 100);
+		NonViewAware imageAware = new NonViewAware(uri, targetSize, ViewScaleType.CROP);
+		ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageAware, targetSize, uri + "_100x100",
+				DisplayImageOptions.createSimple(), null, null);
+		return new LoadAndDisplayImageTask(mEngine, imageLoadingInfo, null);
+	}
+}
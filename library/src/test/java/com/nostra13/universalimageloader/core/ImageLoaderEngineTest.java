@@ -0,0 +1,270 @@
+package com.nostra13.universalimageloader.core;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.decode.ImageDecoder;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
+import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
+import com.nostra13.universalimageloader.core.process.BitmapProcessor;
+import com.nostra13.universalimageloader.utils.MemoryCacheUtils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class ImageLoaderEngineTest {
+	private static final String IMAGE_URI = "http://image.com/1.png";
+	private static final ImageSize IMAGE_SIZE = new ImageSize(100, 100);
+	private static final String MEMORY_CACHE_KEY = MemoryCacheUtils.generateKey(IMAGE_URI, IMAGE_SIZE);
+	private static final long WAIT_TIMEOUT = 5000;
+
+	@Test
+	public void testPauseStopResume_releasesHeldTasks() throws Exception {
+		CountingExecutor executor = new CountingExecutor();
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.taskExecutor(executor)
+				.build();
+		ImageLoaderEngine engine = new ImageLoaderEngine(configuration);
+		DisplayImageOptions options = new DisplayImageOptions.Builder().build();
+
+		engine.pause();
+		engine.submit(createTask(engine, createImageAware(), options, null));
+		Assertions.assertThat(executor.count.get()).isEqualTo(0);
+		engine.resume();
+		waitForCount(executor.count, 1);
+		Assertions.assertThat(executor.count.get()).isEqualTo(1);
+
+		// Next releasing pass is scheduled, stop cancels it
+		Thread.sleep(10);
+		engine.stop();
+
+		engine.pause();
+		engine.submit(createTask(engine, createImageAware(), options, null));
+		engine.resume();
+		waitForCount(executor.count, 2);
+		Assertions.assertThat(executor.count.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testDownloadError_decodesFromOriginalUri() throws Exception {
+		FailingDownloader downloader = new FailingDownloader();
+		CountingDecoder decoder = new CountingDecoder(null);
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.imageDownloader(downloader)
+				.imageDecoder(decoder)
+				.build();
+		ImageLoaderEngine engine = new ImageLoaderEngine(configuration);
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cacheOnDisk(true)
+				.syncLoading(true)
+				.build();
+		CompletionListener listener = new CompletionListener(1);
+
+		createTask(engine, createImageAware(), options, listener).run();
+
+		Assertions.assertThat(downloader.count.get()).isEqualTo(1);
+		Assertions.assertThat(decoder.decodedUris).isEqualTo(Arrays.asList(IMAGE_URI));
+		Assertions.assertThat(listener.loadedImages.size()).isEqualTo(1);
+		Assertions.assertThat(listener.failedCount.get()).isEqualTo(0);
+		Assertions.assertThat(configuration.diskCache.get(IMAGE_URI).exists()).isEqualTo(false);
+	}
+
+	@Test
+	public void testActiveResources_postProcessedImage() throws Exception {
+		CountingDecoder decoder = new CountingDecoder(null);
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.imageDecoder(decoder)
+				.activeResources(true)
+				.build();
+		ImageLoaderEngine engine = new ImageLoaderEngine(configuration);
+		DisplayImageOptions postProcessingOptions = new DisplayImageOptions.Builder()
+				.cacheInMemory(true)
+				.syncLoading(true)
+				.postProcessor(new BitmapProcessor() {
+					@Override
+					public Bitmap process(Bitmap bitmap) {
+						return Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
+					}
+				})
+				.build();
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cacheInMemory(true)
+				.syncLoading(true)
+				.build();
+
+		// Post-processed image is displayed, cached image stays in memory cache
+		ImageAware imageAware1 = createViewAware();
+		CompletionListener listener1 = new CompletionListener(1);
+		createTask(engine, imageAware1, postProcessingOptions, listener1).run();
+		Bitmap cachedBitmap = configuration.memoryCache.get(MEMORY_CACHE_KEY);
+		Assertions.assertThat(listener1.loadedImages.size()).isEqualTo(1);
+		Assertions.assertThat(cachedBitmap == null).isEqualTo(false);
+		Assertions.assertThat(listener1.loadedImages.get(0) == cachedBitmap).isEqualTo(false);
+
+		// Cached image is displayed and moved into active tier
+		ImageAware imageAware2 = createViewAware();
+		CompletionListener listener2 = new CompletionListener(1);
+		createTask(engine, imageAware2, options, listener2).run();
+		Assertions.assertThat(listener2.loadedImages.get(0)).isSameAs(cachedBitmap);
+		Assertions.assertThat(configuration.memoryCache.get(MEMORY_CACHE_KEY)).isNull();
+		Assertions.assertThat(engine.getCachedBitmap(MEMORY_CACHE_KEY)).isSameAs(cachedBitmap);
+
+		// Released image returns into memory cache
+		engine.onBitmapUnbound(imageAware1);
+		Assertions.assertThat(configuration.memoryCache.get(MEMORY_CACHE_KEY)).isNull();
+		engine.onBitmapUnbound(imageAware2);
+		Assertions.assertThat(configuration.memoryCache.get(MEMORY_CACHE_KEY)).isSameAs(cachedBitmap);
+		Assertions.assertThat(decoder.decodedUris.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testInFlightLoad_coalescesTasksOfSameUri() throws Exception {
+		CountDownLatch decodeStarted = new CountDownLatch(1);
+		final CountDownLatch decodeAllowed = new CountDownLatch(1);
+		CountingDecoder decoder = new CountingDecoder(decodeStarted) {
+			@Override
+			public Bitmap decode(ImageDecodingInfo imageDecodingInfo) throws IOException {
+				Bitmap bitmap = super.decode(imageDecodingInfo);
+				try {
+					decodeAllowed.await(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e.getMessage());
+				}
+				return bitmap;
+			}
+		};
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.imageDecoder(decoder)
+				.build();
+		ImageLoaderEngine engine = new ImageLoaderEngine(configuration);
+		DisplayImageOptions options = new DisplayImageOptions.Builder()
+				.cacheInMemory(true)
+				.cacheOnDisk(false)
+				.build();
+		CompletionListener listener = new CompletionListener(2);
+		LoadAndDisplayImageTask loader = createTask(engine, createImageAware(), options, listener);
+		LoadAndDisplayImageTask subscriber = createTask(engine, createImageAware(), options, listener);
+
+		Thread loaderThread = new Thread(loader);
+		loaderThread.start();
+		Assertions.assertThat(decodeStarted.await(WAIT_TIMEOUT, TimeUnit.MILLISECONDS)).isEqualTo(true);
+		// Subscriber is attached to in-flight load and releases its thread at once
+		subscriber.run();
+		decodeAllowed.countDown();
+		loaderThread.join(WAIT_TIMEOUT);
+
+		Assertions.assertThat(listener.completed.await(WAIT_TIMEOUT, TimeUnit.MILLISECONDS)).isEqualTo(true);
+		Assertions.assertThat(decoder.decodedUris.size()).isEqualTo(1);
+		Assertions.assertThat(listener.loadedImages.size()).isEqualTo(2);
+		Assertions.assertThat(listener.loadedImages.get(1)).isSameAs(listener.loadedImages.get(0));
+		Assertions.assertThat(engine.hasInFlightSubscribers(IMAGE_URI)).isEqualTo(false);
+	}
+
+	private static LoadAndDisplayImageTask createTask(ImageLoaderEngine engine, ImageAware imageAware,
+			DisplayImageOptions options, CompletionListener listener) {
+		engine.prepareDisplayTaskFor(imageAware, MEMORY_CACHE_KEY);
+		ImageLoadingInfo info = new ImageLoadingInfo(IMAGE_URI, imageAware, IMAGE_SIZE, MEMORY_CACHE_KEY, options,
+				listener, null);
+		return new LoadAndDisplayImageTask(engine, info, null);
+	}
+
+	private static ImageAware createImageAware() {
+		return new NonViewAware(IMAGE_SIZE, ViewScaleType.CROP);
+	}
+
+	/** @return ImageAware which wraps view, so images displayed in it are acquired by active images tier */
+	private static ImageAware createViewAware() {
+		final View view = new View(RuntimeEnvironment.application);
+		return new NonViewAware(IMAGE_SIZE, ViewScaleType.CROP) {
+			@Override
+			public View getWrappedView() {
+				return view;
+			}
+		};
+	}
+
+	private static void waitForCount(AtomicInteger count, int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+		while (count.get() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static class CountingExecutor implements Executor {
+		final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public void execute(Runnable command) {
+			count.incrementAndGet();
+		}
+	}
+
+	private static class FailingDownloader implements ImageDownloader {
+		final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public InputStream getStream(String imageUri, Object extra) throws IOException {
+			count.incrementAndGet();
+			throw new IOException("Connection reset");
+		}
+	}
+
+	private static class CountingDecoder implements ImageDecoder {
+		final List<String> decodedUris = new CopyOnWriteArrayList<String>();
+		private final CountDownLatch decodeStarted;
+
+		CountingDecoder(CountDownLatch decodeStarted) {
+			this.decodeStarted = decodeStarted;
+		}
+
+		@Override
+		public Bitmap decode(ImageDecodingInfo imageDecodingInfo) throws IOException {
+			decodedUris.add(imageDecodingInfo.getImageUri());
+			if (decodeStarted != null) {
+				decodeStarted.countDown();
+			}
+			return Bitmap.createBitmap(IMAGE_SIZE.getWidth(), IMAGE_SIZE.getHeight(), Bitmap.Config.ARGB_8888);
+		}
+	}
+
+	private static class CompletionListener extends SimpleImageLoadingListener {
+		final List<Bitmap> loadedImages = new CopyOnWriteArrayList<Bitmap>();
+		final AtomicInteger failedCount = new AtomicInteger();
+		final CountDownLatch completed;
+
+		CompletionListener(int expectedCount) {
+			completed = new CountDownLatch(expectedCount);
+		}
+
+		@Override
+		public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
+			loadedImages.add(loadedImage);
+			completed.countDown();
+		}
+
+		@Override
+		public void onLoadingFailed(String imageUri, View view, FailReason failReason) {
+			failedCount.incrementAndGet();
+			completed.countDown();
+		}
+	}
+}
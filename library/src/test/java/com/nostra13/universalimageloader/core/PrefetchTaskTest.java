@@ -0,0 +1,201 @@
+package com.nostra13.universalimageloader.core;
+
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class PrefetchTaskTest {
+	private static final byte[] IMAGE_BYTES = new byte[] {1, 2, 3, 4};
+	private static final long WAIT_TIMEOUT = 5000;
+	private static final ImageSize IMAGE_SIZE = new ImageSize(100, 100);
+
+	private ImageLoaderConfiguration mConfiguration;
+	private ImageLoaderEngine mEngine;
+	private DisplayImageOptions mOptions;
+	private String mImageUri;
+	private String mMissingImageUri;
+
+	@Before
+	public void setUp() throws Exception {
+		mConfiguration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application).build();
+		mEngine = new ImageLoaderEngine(mConfiguration);
+		mOptions = new DisplayImageOptions.Builder().cacheOnDisk(true).build();
+
+		File imageFile = File.createTempFile("prefetch", ".png");
+		imageFile.deleteOnExit();
+		FileOutputStream os = new FileOutputStream(imageFile);
+		try {
+			os.write(IMAGE_BYTES);
+		} finally {
+			os.close();
+		}
+		mImageUri = Scheme.FILE.wrap(imageFile.getAbsolutePath());
+		mMissingImageUri = Scheme.FILE.wrap(imageFile.getAbsolutePath() + ".missing");
+	}
+
+	@Test
+	public void testPrefetch_cachesImageOnDisk() throws Exception {
+		PrefetchHandle handle = new PrefetchHandle(mEngine, 1);
+		PrefetchTask task = createTask(mImageUri, handle);
+
+		task.run();
+
+		Assertions.assertThat(handle.getCompletedCount()).isEqualTo(1);
+		Assertions.assertThat(handle.getPendingCount()).isEqualTo(0);
+		Assertions.assertThat(mConfiguration.diskCache.get(mImageUri).exists()).isEqualTo(true);
+	}
+
+	@Test
+	public void testPrefetch_waitsForInFlightLoad() throws Exception {
+		mEngine.attachToInFlightLoad(createLoadTask(mImageUri, mOptions));
+		PrefetchHandle handle = new PrefetchHandle(mEngine, 1);
+		PrefetchTask task = createTask(mImageUri, handle);
+
+		task.run();
+		Assertions.assertThat(handle.isDone()).isEqualTo(false);
+		Assertions.assertThat(handle.getPendingCount()).isEqualTo(1);
+
+		mEngine.detachInFlightLoad(mImageUri);
+		waitUntilDone(handle);
+		Assertions.assertThat(handle.getCompletedCount()).isEqualTo(1);
+		Assertions.assertThat(handle.getPendingCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testPrefetch_usesResultOfInFlightLoad() throws Exception {
+		mEngine.attachToInFlightLoad(createLoadTask(mMissingImageUri, mOptions));
+		PrefetchHandle handle = new PrefetchHandle(mEngine, 1);
+		createTask(mMissingImageUri, handle).run();
+
+		// in-flight load cached image on disk
+		mConfiguration.diskCache.save(mMissingImageUri, new ByteArrayInputStream(IMAGE_BYTES), null);
+		mEngine.detachInFlightLoad(mMissingImageUri);
+
+		waitUntilDone(handle);
+		Assertions.assertThat(handle.getCompletedCount()).isEqualTo(1);
+		Assertions.assertThat(handle.getFailedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testPrefetch_failedInFlightLoad() throws Exception {
+		mEngine.attachToInFlightLoad(createLoadTask(mMissingImageUri, mOptions));
+		PrefetchHandle handle = new PrefetchHandle(mEngine, 1);
+		createTask(mMissingImageUri, handle).run();
+
+		// in-flight load failed and didn't cache image on disk
+		mEngine.detachInFlightLoad(mMissingImageUri);
+
+		waitUntilDone(handle);
+		Assertions.assertThat(handle.getCompletedCount()).isEqualTo(0);
+		Assertions.assertThat(handle.getFailedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testCancel_waitingTask() throws Exception {
+		mEngine.attachToInFlightLoad(createLoadTask(mImageUri, mOptions));
+		PrefetchHandle handle = new PrefetchHandle(mEngine, 1);
+		createTask(mImageUri, handle).run();
+
+		handle.cancel();
+		Assertions.assertThat(handle.getFailedCount()).isEqualTo(1);
+		Assertions.assertThat(handle.getPendingCount()).isEqualTo(0);
+
+		mEngine.detachInFlightLoad(mImageUri);
+		Thread.sleep(200);
+		Assertions.assertThat(handle.getCompletedCount()).isEqualTo(0);
+		Assertions.assertThat(handle.getFailedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testMemoryPrefetch_forgottenWhenFinished() throws Exception {
+		PrefetchHandle handle = new PrefetchHandle(mEngine, 2);
+		ImageLoadingListener listener1 = handle.addImageAware(createImageAware(mImageUri));
+		ImageLoadingListener listener2 = handle.addImageAware(createImageAware(mMissingImageUri));
+		Assertions.assertThat(handle.getPendingCount()).isEqualTo(2);
+
+		listener1.onLoadingComplete(mImageUri, null, null);
+		listener2.onLoadingFailed(mMissingImageUri, null, null);
+		listener2.onLoadingCancelled(mMissingImageUri, null);
+
+		Assertions.assertThat(handle.getPendingCount()).isEqualTo(0);
+		Assertions.assertThat(handle.getCompletedCount()).isEqualTo(1);
+		Assertions.assertThat(handle.getFailedCount()).isEqualTo(1);
+		Assertions.assertThat(handle.isDone()).isEqualTo(true);
+	}
+
+	@Test
+	public void testMemoryPrefetch_cachedImageIsNotQueuedForCachedImages() throws Exception {
+		CountingExecutor executor = new CountingExecutor();
+		CountingExecutor executorForCachedImages = new CountingExecutor();
+		ImageLoaderConfiguration configuration = new ImageLoaderConfiguration.Builder(RuntimeEnvironment.application)
+				.taskExecutor(executor)
+				.taskExecutorForCachedImages(executorForCachedImages)
+				.build();
+		ImageLoaderEngine engine = new ImageLoaderEngine(configuration);
+		engine.indexImageOnDisk(mImageUri, new File(Scheme.FILE.crop(mImageUri)));
+
+		DisplayImageOptions prefetchOptions = new DisplayImageOptions.Builder()
+				.priority(ImageLoaderEngine.PREFETCH_PRIORITY)
+				.build();
+		engine.submit(createLoadTask(engine, mImageUri, prefetchOptions));
+		Assertions.assertThat(executorForCachedImages.count.get()).isEqualTo(0);
+		Assertions.assertThat(executor.count.get()).isEqualTo(1);
+
+		engine.submit(createLoadTask(engine, mImageUri, mOptions));
+		Assertions.assertThat(executorForCachedImages.count.get()).isEqualTo(1);
+		Assertions.assertThat(executor.count.get()).isEqualTo(1);
+	}
+
+	private PrefetchTask createTask(String uri, PrefetchHandle handle) {
+		PrefetchTask task = new PrefetchTask(mEngine, uri, mOptions, handle);
+		handle.addTask(task);
+		return task;
+	}
+
+	private LoadAndDisplayImageTask createLoadTask(String uri, DisplayImageOptions options) {
+		return createLoadTask(mEngine, uri, options);
+	}
+
+	private static LoadAndDisplayImageTask createLoadTask(ImageLoaderEngine engine, String uri,
+			DisplayImageOptions options) {
+		NonViewAware imageAware = createImageAware(uri);
+		ImageLoadingInfo info = new ImageLoadingInfo(uri, imageAware, IMAGE_SIZE, uri, options, null, null);
+		return new LoadAndDisplayImageTask(engine, info, null);
+	}
+
+	private static NonViewAware createImageAware(String uri) {
+		return new NonViewAware(uri, IMAGE_SIZE, ViewScaleType.CROP);
+	}
+
+	private static void waitUntilDone(PrefetchHandle handle) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+		while (!handle.isDone() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static class CountingExecutor implements Executor {
+		final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public void execute(Runnable command) {
+			count.incrementAndGet();
+		}
+	}
+}